@@ -4,6 +4,11 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 
 public class FileUtils {
 
@@ -24,4 +29,43 @@ public class FileUtils {
 		return new String(buffer);
 	}
 
+	/**
+	 * Releases the given memory mapping without waiting for garbage collection.
+	 * The buffer must not be accessed afterwards. Unmapping is best effort:
+	 * returns <code>false</code> if the running JVM doesn't allow explicit
+	 * unmapping or it failed; the mapping is then released by the garbage
+	 * collector.
+	 */
+	public static boolean unmap(MappedByteBuffer buffer) {
+		Method invokeCleaner;
+		try {
+			invokeCleaner = Class.forName("sun.misc.Unsafe").getMethod("invokeCleaner", ByteBuffer.class); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			return unmapBeforeJava9(buffer);
+		}
+		try {
+			Field theUnsafe = invokeCleaner.getDeclaringClass().getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return true;
+		} catch (NoSuchFieldException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static boolean unmapBeforeJava9(MappedByteBuffer buffer) {
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner"); //$NON-NLS-1$
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner == null) {
+				return false;
+			}
+			cleaner.getClass().getMethod("clean").invoke(cleaner); //$NON-NLS-1$
+			return true;
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			return false;
+		}
+	}
+
 }
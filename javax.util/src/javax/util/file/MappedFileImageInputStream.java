@@ -0,0 +1,95 @@
+package javax.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * A random access image input stream that reads a file through a read-only
+ * memory mapping, so the file content is paged in by the operating system
+ * instead of being copied onto the heap. Closing the stream releases the
+ * mapping immediately, which is needed on Windows before the file can be
+ * renamed, moved or deleted.
+ * <p>
+ * Reading and closing are mutually exclusive, so that a read in another
+ * thread fails with an exception instead of accessing the released mapping.
+ */
+public class MappedFileImageInputStream extends ImageInputStreamImpl {
+
+	private MappedByteBuffer buffer;
+
+	private final long length;
+
+	public MappedFileImageInputStream(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be mapped: " + file);
+			}
+			buffer = channel.map(MapMode.READ_ONLY, 0, length);
+		} finally {
+			randomAccessFile.close(); // The mapping stays valid after the channel is closed
+		}
+	}
+
+	@Override
+	public synchronized int read() throws IOException {
+		checkClosed();
+		bitOffset = 0;
+		if (streamPos >= length) {
+			return -1;
+		}
+		return buffer.get((int)streamPos++) & 0xFF;
+	}
+
+	@Override
+	public synchronized int read(byte[] bytes, int offset, int count) throws IOException {
+		checkClosed();
+		bitOffset = 0;
+		if (count == 0) {
+			return 0;
+		}
+		if (streamPos >= length) {
+			return -1;
+		}
+		int available = (int)Math.min(count, length - streamPos);
+		ByteBuffer view = buffer.duplicate();
+		view.position((int)streamPos);
+		view.get(bytes, offset, available);
+		streamPos += available;
+		return available;
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public boolean isCached() {
+		return true;
+	}
+
+	@Override
+	public boolean isCachedMemory() {
+		return true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		super.close();
+		if (buffer != null) {
+			FileUtils.unmap(buffer);
+			buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,297 @@
+package javax.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A text file read through memory mappings, with an index of the offsets of
+ * its lines. The index is built incrementally, one window of the file per
+ * {@link #update()}, and when the file has grown, only the appended part is
+ * scanned. The mappings are released after every call, so that the file can
+ * be rewritten by other programs, also on Windows.
+ * <p>
+ * Line breaks are found by their encoding in the charset of the file, so that
+ * charsets which aren't ASCII-compatible, such as UTF-16, are supported as
+ * well. The byte order of UTF-16 and UTF-32 is taken from the byte order mark.
+ * <p>
+ * The index may be updated by one thread while the lines are read by others.
+ */
+public class MappedTextFile {
+
+	/**
+	 * The maximum number of bytes mapped at a time.
+	 */
+	private static final int WINDOW_SIZE = 32 << 20;
+
+	/**
+	 * The number of bytes before the end of the indexed part which are compared
+	 * to recognize a file which was rewritten instead of appended to.
+	 */
+	private static final int FINGERPRINT_SIZE = 4096;
+
+	/**
+	 * The maximum number of bytes read per line; longer lines are truncated at
+	 * the last complete character.
+	 */
+	public static final int MAX_LINE_LENGTH = 4096;
+
+	private final File file;
+
+	private final Charset charset;
+
+	/**
+	 * The charset with the byte order of the file, resolved when indexing
+	 * starts.
+	 */
+	private Charset decodingCharset;
+
+	/**
+	 * The encoded line break.
+	 */
+	private byte[] newline;
+
+	/**
+	 * The offsets of the line starts, the first line starting at 0.
+	 */
+	private long[] lineOffsets = new long[1024];
+
+	private int lineCount = 1;
+
+	/**
+	 * The number of bytes scanned for line breaks.
+	 */
+	private long indexedLength;
+
+	/**
+	 * The checksum of the bytes before the end of the indexed part.
+	 */
+	private long fingerprint;
+
+	/**
+	 * The number of times the index was discarded because the file was
+	 * rewritten.
+	 */
+	private int resetCount;
+
+	public MappedTextFile(File file, Charset charset) {
+		this.file = file;
+		this.charset = charset;
+		decodingCharset = charset;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Indexes the next window of the file, starting over if the file was
+	 * rewritten or truncated since the last update. Returns whether there is
+	 * more to index. Must not be called concurrently.
+	 */
+	public boolean update() throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long length = channel.size();
+			long position;
+			byte[] newline;
+			synchronized (this) {
+				if (length < indexedLength || computeFingerprint(channel, indexedLength) != fingerprint) {
+					reset();
+				}
+				if (indexedLength == 0) {
+					decodingCharset = resolveByteOrder(charset, channel);
+					this.newline = "\n".getBytes(decodingCharset); //$NON-NLS-1$
+				}
+				position = indexedLength;
+				newline = this.newline;
+			}
+			// Only whole code units are indexed, so that no line break is split
+			int size = (int)Math.min(WINDOW_SIZE, length - position);
+			size -= size % newline.length;
+			if (size <= 0) {
+				return false;
+			}
+			long[] offsets = new long[1024];
+			int count = 0;
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, size);
+			try {
+				for (int i = 0; i < size; i += newline.length) {
+					if (isNewline(buffer, i, newline)) {
+						if (count == offsets.length) {
+							offsets = Arrays.copyOf(offsets, count * 2);
+						}
+						offsets[count++] = position + i + newline.length;
+					}
+				}
+			} finally {
+				FileUtils.unmap(buffer);
+			}
+			long newFingerprint = computeFingerprint(channel, position + size);
+			synchronized (this) {
+				if (lineCount + count > lineOffsets.length) {
+					lineOffsets = Arrays.copyOf(lineOffsets, Math.max(lineOffsets.length * 2, lineCount + count));
+				}
+				System.arraycopy(offsets, 0, lineOffsets, lineCount, count);
+				lineCount += count;
+				indexedLength = position + size;
+				fingerprint = newFingerprint;
+			}
+			return position + size < length;
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static boolean isNewline(ByteBuffer buffer, int index, byte[] newline) {
+		if (buffer.get(index) != newline[0]) {
+			return false;
+		}
+		for (int i = 1; i < newline.length; i++) {
+			if (buffer.get(index + i) != newline[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the charset with the byte order given by the byte order mark of
+	 * the file if the given charset depends on it, otherwise the given charset.
+	 */
+	private static Charset resolveByteOrder(Charset charset, FileChannel channel) throws IOException {
+		String name = charset.name();
+		if (!name.equals("UTF-16") && !name.equals("UTF-32")) { //$NON-NLS-1$ //$NON-NLS-2$
+			return charset;
+		}
+		ByteBuffer mark = ByteBuffer.allocate(2);
+		channel.read(mark, 0);
+		boolean littleEndian = mark.position() == 2 && mark.get(0) == (byte)0xFF && mark.get(1) == (byte)0xFE;
+		return Charset.forName(name + (littleEndian ? "LE" : "BE")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void reset() {
+		lineCount = 1;
+		indexedLength = 0;
+		fingerprint = 0;
+		resetCount++;
+	}
+
+	private static long computeFingerprint(FileChannel channel, long end) throws IOException {
+		if (end == 0) {
+			return 0;
+		}
+		long start = Math.max(0, end - FINGERPRINT_SIZE);
+		ByteBuffer buffer = ByteBuffer.allocate((int)(end - start));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, start + buffer.position()) < 0) {
+				return -1; // Truncated in the meantime
+			}
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(buffer.array());
+		return checksum.getValue();
+	}
+
+	/**
+	 * Returns the number of indexed lines. The last line may be incomplete
+	 * until the file is indexed completely.
+	 */
+	public synchronized int getLineCount() {
+		return lineCount;
+	}
+
+	public synchronized long getIndexedLength() {
+		return indexedLength;
+	}
+
+	/**
+	 * Returns the number of times the index was discarded because the file was
+	 * rewritten, so that readers can tell whether the lines read before are
+	 * still valid.
+	 */
+	public synchronized int getResetCount() {
+		return resetCount;
+	}
+
+	/**
+	 * Returns the given number of lines starting with the given line, without
+	 * line terminators and truncated to {@link #MAX_LINE_LENGTH} bytes at a
+	 * character boundary.
+	 */
+	public synchronized String[] getLines(int first, int count) throws IOException {
+		count = Math.max(0, Math.min(count, lineCount - first));
+		String[] lines = new String[count];
+		if (count == 0) {
+			return lines;
+		}
+		CharsetDecoder decoder = decodingCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		MappedByteBuffer window = null;
+		long windowStart = 0;
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long length = Math.min(channel.size(), indexedLength);
+			for (int i = 0; i < count; i++) {
+				int line = first + i;
+				long start = lineOffsets[line];
+				long lineEnd = line + 1 < lineCount ? lineOffsets[line + 1] : indexedLength;
+				long end = Math.min(Math.min(lineEnd, start + MAX_LINE_LENGTH), length);
+				if (end <= start) {
+					lines[i] = ""; //$NON-NLS-1$
+					continue;
+				}
+				if (window == null || start < windowStart || end > windowStart + window.capacity()) {
+					if (window != null) {
+						FileUtils.unmap(window);
+					}
+					windowStart = start;
+					window = channel.map(MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, length - start));
+				}
+				byte[] bytes = new byte[(int)(end - start)];
+				ByteBuffer view = window.duplicate();
+				view.position((int)(start - windowStart));
+				view.get(bytes);
+				lines[i] = decode(decoder, bytes, end < lineEnd, line == 0);
+			}
+		} finally {
+			if (window != null) {
+				FileUtils.unmap(window);
+			}
+			randomAccessFile.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Decodes a line and removes its terminator. A truncated line is decoded up
+	 * to its last complete character.
+	 */
+	private static String decode(CharsetDecoder decoder, byte[] bytes, boolean truncated, boolean firstLine) {
+		decoder.reset();
+		CharBuffer chars = CharBuffer.allocate((int)(bytes.length * (double)decoder.maxCharsPerByte()) + 1);
+		decoder.decode(ByteBuffer.wrap(bytes), chars, !truncated);
+		if (!truncated) {
+			decoder.flush(chars);
+		}
+		chars.flip();
+		int start = firstLine && chars.length() > 0 && chars.get(0) == '\uFEFF' ? 1 : 0;
+		int end = chars.limit();
+		while (end > start && (chars.get(end - 1) == '\n' || chars.get(end - 1) == '\r')) {
+			end--;
+		}
+		return chars.subSequence(start, end).toString();
+	}
+
+}
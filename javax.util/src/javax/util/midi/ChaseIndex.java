@@ -0,0 +1,68 @@
+package javax.util.midi;
+
+/**
+ * Snapshots of the {@link ChaseState} of a sequence at regular tick
+ * intervals, so that the state at any position is found by scanning only the
+ * events since the preceding snapshot rather than the whole sequence.
+ */
+public class ChaseIndex {
+
+	private static final int MAX_SNAPSHOTS = 512;
+
+	private final CompactTrack[] tracks;
+
+	private final long interval;
+
+	private final byte[][] snapshotValues;
+
+	private final int[] snapshotTempos;
+
+	/**
+	 * The index of the first event at or after each snapshot, per track.
+	 */
+	private final int[][] trackPositions;
+
+	public ChaseIndex(CompactSequence sequence) {
+		tracks = sequence.getTracks();
+		long tickLength = sequence.getTickLength();
+		interval = Math.max(Math.max(1, sequence.getResolution()), (tickLength + MAX_SNAPSHOTS - 1) / MAX_SNAPSHOTS);
+		int snapshotCount = (int)(tickLength / interval) + 1;
+		snapshotValues = new byte[snapshotCount][];
+		snapshotTempos = new int[snapshotCount];
+		trackPositions = new int[snapshotCount][];
+		ChaseState state = new ChaseState();
+		int[] positions = new int[tracks.length];
+		for (int snapshot = 0; snapshot < snapshotCount; snapshot++) {
+			long tick = snapshot * interval;
+			for (int t = 0; t < tracks.length; t++) {
+				CompactTrack track = tracks[t];
+				int position = positions[t];
+				while (position < track.size() && track.getTick(position) < tick) {
+					state.apply(track, position);
+					position++;
+				}
+				positions[t] = position;
+			}
+			snapshotValues[snapshot] = state.copyValues();
+			snapshotTempos[snapshot] = state.getTempo();
+			trackPositions[snapshot] = positions.clone();
+		}
+	}
+
+	/**
+	 * Returns the state reached by the events before the given tick.
+	 */
+	public ChaseState getState(long tick) {
+		int snapshot = (int)Math.min(snapshotValues.length - 1, Math.max(0, tick) / interval);
+		ChaseState result = new ChaseState(snapshotValues[snapshot], snapshotTempos[snapshot], snapshot * interval);
+		int[] positions = trackPositions[snapshot];
+		for (int t = 0; t < tracks.length; t++) {
+			CompactTrack track = tracks[t];
+			for (int i = positions[t]; i < track.size() && track.getTick(i) < tick; i++) {
+				result.apply(track, i);
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,163 @@
+package javax.util.midi;
+
+import java.util.Arrays;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * The controllers, programs and pitch bends of the channels and the tempo at
+ * a position of a sequence, which have to be sent to a synthesizer when
+ * playback starts at that position. Values which were never set are
+ * <code>-1</code>.
+ */
+public class ChaseState {
+
+	public static final int CHANNELS = 16;
+
+	public static final int CONTROLLERS = 128;
+
+	private static final int PROGRAM = CONTROLLERS;
+
+	private static final int PITCH_BEND_LSB = CONTROLLERS + 1;
+
+	private static final int PITCH_BEND_MSB = CONTROLLERS + 2;
+
+	private static final int SLOTS = CONTROLLERS + 3;
+
+	private static final int TEMPO = 0x51;
+
+	private static final int ALL_SOUND_OFF = 120;
+
+	private static final int RESET_ALL_CONTROLLERS = 121;
+
+	private final byte[] values;
+
+	/**
+	 * The ticks at which the values were set, so that the events of several
+	 * tracks can be applied track by track.
+	 */
+	private final long[] ticks;
+
+	private int tempo = -1;
+
+	private long tempoTick;
+
+	ChaseState() {
+		values = new byte[CHANNELS * SLOTS];
+		Arrays.fill(values, (byte)-1);
+		ticks = new long[values.length];
+	}
+
+	/**
+	 * Creates a state from the values of a snapshot taken at the given tick.
+	 */
+	ChaseState(byte[] values, int tempo, long tick) {
+		this.values = values.clone();
+		ticks = new long[values.length];
+		Arrays.fill(ticks, tick);
+		this.tempo = tempo;
+		tempoTick = tick;
+	}
+
+	/**
+	 * Returns a copy of the values to be stored in a snapshot.
+	 */
+	byte[] copyValues() {
+		return values.clone();
+	}
+
+	/**
+	 * Applies the event at the given index of the given track unless a value
+	 * it sets was set by a later event of another track.
+	 */
+	void apply(CompactTrack track, int index) {
+		long tick = track.getTick(index);
+		if (!track.isShortMessage(index)) {
+			if (track.getStatus(index) == 0xFF && track.getMetaType(index) == TEMPO && tick >= tempoTick) {
+				byte[] data = track.getData(index);
+				if (data.length == 3) {
+					tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+					tempoTick = tick;
+				}
+			}
+			return;
+		}
+		int status = track.getStatus(index);
+		int offset = (status & 0x0F) * SLOTS;
+		switch (status & 0xF0) {
+		case ShortMessage.CONTROL_CHANGE:
+			int controller = track.getData1(index);
+			if (controller == RESET_ALL_CONTROLLERS) {
+				for (int i = 0; i < CONTROLLERS; i++) {
+					set(offset + i, -1, tick);
+				}
+			} else if (controller < ALL_SOUND_OFF) {
+				set(offset + controller, track.getData2(index), tick);
+			}
+			break;
+		case ShortMessage.PROGRAM_CHANGE:
+			set(offset + PROGRAM, track.getData1(index), tick);
+			break;
+		case ShortMessage.PITCH_BEND:
+			set(offset + PITCH_BEND_LSB, track.getData1(index), tick);
+			set(offset + PITCH_BEND_MSB, track.getData2(index), tick);
+			break;
+		}
+	}
+
+	private void set(int slot, int value, long tick) {
+		if (tick >= ticks[slot]) {
+			values[slot] = (byte)value;
+			ticks[slot] = tick;
+		}
+	}
+
+	public int getController(int channel, int controller) {
+		return values[channel * SLOTS + controller];
+	}
+
+	public int getProgram(int channel) {
+		return values[channel * SLOTS + PROGRAM];
+	}
+
+	/**
+	 * Returns the 14 bit pitch bend value of the given channel.
+	 */
+	public int getPitchBend(int channel) {
+		int offset = channel * SLOTS;
+		return values[offset + PITCH_BEND_LSB] < 0 ? -1 : values[offset + PITCH_BEND_LSB] | (values[offset + PITCH_BEND_MSB] << 7);
+	}
+
+	/**
+	 * Returns the tempo in microseconds per quarter note.
+	 */
+	public int getTempo() {
+		return tempo;
+	}
+
+	/**
+	 * Sends the programs, controllers and pitch bends which were set to the
+	 * given receiver.
+	 */
+	public void send(Receiver receiver) throws InvalidMidiDataException {
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			int program = getProgram(channel);
+			if (program >= 0) {
+				receiver.send(new ShortMessage(ShortMessage.PROGRAM_CHANGE, channel, program, 0), -1);
+			}
+			for (int controller = 0; controller < CONTROLLERS; controller++) {
+				int value = getController(channel, controller);
+				if (value >= 0) {
+					receiver.send(new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, controller, value), -1);
+				}
+			}
+			int pitchBend = getPitchBend(channel);
+			if (pitchBend >= 0) {
+				receiver.send(new ShortMessage(ShortMessage.PITCH_BEND, channel, pitchBend & 0x7F, pitchBend >> 7), -1);
+			}
+		}
+	}
+
+}
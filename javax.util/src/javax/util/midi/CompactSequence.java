@@ -0,0 +1,135 @@
+package javax.util.midi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Sequence;
+
+/**
+ * A MIDI sequence whose tracks are stored in primitive arrays, as read by
+ * {@link MidiFileReader}. A {@link Sequence} with message objects is only
+ * built on demand, e.g. when the sequence is played.
+ */
+public class CompactSequence {
+
+	private static final int TEMPO = 0x51;
+
+	private final float divisionType;
+
+	private final int resolution;
+
+	private final List<CompactTrack> tracks = new ArrayList<CompactTrack>();
+
+	/**
+	 * The tempo changes, collected by {@link #tracksAdded()}.
+	 */
+	private long[] tempoChanges;
+
+	private TempoMap tempoMap;
+
+	CompactSequence(float divisionType, int resolution) {
+		this.divisionType = divisionType;
+		this.resolution = resolution;
+	}
+
+	void addTrack(CompactTrack track) {
+		tracks.add(track);
+	}
+
+	/**
+	 * Builds the tempo map after all tracks have been added, before the
+	 * sequence is shared between threads.
+	 */
+	void tracksAdded() {
+		tempoChanges = collectTempoChanges();
+		tempoMap = new TempoMap(this);
+	}
+
+	/**
+	 * Returns the division type as defined by {@link Sequence}.
+	 */
+	public float getDivisionType() {
+		return divisionType;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public CompactTrack[] getTracks() {
+		return tracks.toArray(new CompactTrack[tracks.size()]);
+	}
+
+	public long getTickLength() {
+		long result = 0;
+		for (CompactTrack track : tracks) {
+			result = Math.max(result, track.getTickLength());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the duration of the sequence, taking the tempo changes into
+	 * account.
+	 */
+	public long getMicrosecondLength() {
+		return getTempoMap().getMicrosecond(getTickLength());
+	}
+
+	/**
+	 * Returns the tick reached after the given duration, taking the tempo
+	 * changes into account.
+	 */
+	public long getTick(long microseconds) {
+		return getTempoMap().getTick(microseconds);
+	}
+
+	public TempoMap getTempoMap() {
+		return tempoMap;
+	}
+
+	/**
+	 * Returns the tempo changes of all tracks sorted by tick, each packed as
+	 * tick &lt;&lt; 24 | microseconds per quarter note. The array must not be
+	 * modified.
+	 */
+	long[] getTempoChanges() {
+		return tempoChanges;
+	}
+
+	private long[] collectTempoChanges() {
+		long[] result = new long[16];
+		int count = 0;
+		for (CompactTrack track : tracks) {
+			for (int i = 0; i < track.size(); i++) {
+				if (!track.isShortMessage(i) && track.getStatus(i) == 0xFF && track.getMetaType(i) == TEMPO) {
+					byte[] data = track.getData(i);
+					if (data.length == 3) {
+						if (count == result.length) {
+							result = Arrays.copyOf(result, count * 2);
+						}
+						int microsecondsPerQuarter = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+						result[count++] = (track.getTick(i) << 24) | microsecondsPerQuarter;
+					}
+				}
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Builds a sequence with message objects from the compact tracks.
+	 */
+	public Sequence toSequence() throws InvalidMidiDataException {
+		Sequence result = new Sequence(divisionType, resolution);
+		for (CompactTrack track : tracks) {
+			track.addTo(result.createTrack());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,200 @@
+package javax.util.midi;
+
+import java.util.Arrays;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+import javax.sound.midi.Track;
+
+/**
+ * The events of a MIDI track stored in primitive arrays. Channel messages are
+ * packed into a single <code>int</code> (status, data1 &lt;&lt; 8, data2
+ * &lt;&lt; 16); meta and system exclusive messages are stored as the
+ * complement of an index into a side table of their types and data.
+ */
+public class CompactTrack {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private long[] ticks = new long[INITIAL_CAPACITY];
+
+	private int[] messages = new int[INITIAL_CAPACITY];
+
+	private int size;
+
+	private int[] payloadTypes = new int[16];
+
+	private byte[][] payloads = new byte[16][];
+
+	private int payloadCount;
+
+	CompactTrack() {
+	}
+
+	void addShortMessage(long tick, int status, int data1, int data2) {
+		ensureCapacity();
+		ticks[size] = tick;
+		messages[size] = status | (data1 << 8) | (data2 << 16);
+		size++;
+	}
+
+	/**
+	 * Adds a meta message (status 0xFF) or a system exclusive message (status
+	 * 0xF0 or 0xF7). The data of a system exclusive message doesn't include the
+	 * status byte.
+	 */
+	void addPayloadMessage(long tick, int status, int type, byte[] data) {
+		ensureCapacity();
+		if (payloadCount == payloads.length) {
+			payloadTypes = Arrays.copyOf(payloadTypes, payloadCount * 2);
+			payloads = Arrays.copyOf(payloads, payloadCount * 2);
+		}
+		payloadTypes[payloadCount] = status | (type << 8);
+		payloads[payloadCount] = data;
+		ticks[size] = tick;
+		messages[size] = ~payloadCount;
+		payloadCount++;
+		size++;
+	}
+
+	private void ensureCapacity() {
+		if (size == ticks.length) {
+			ticks = Arrays.copyOf(ticks, size * 2);
+			messages = Arrays.copyOf(messages, size * 2);
+		}
+	}
+
+	/**
+	 * Releases the unused capacity of the arrays.
+	 */
+	void trim() {
+		ticks = Arrays.copyOf(ticks, size);
+		messages = Arrays.copyOf(messages, size);
+		payloadTypes = Arrays.copyOf(payloadTypes, payloadCount);
+		payloads = Arrays.copyOf(payloads, payloadCount);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTick(int index) {
+		return ticks[index];
+	}
+
+	/**
+	 * Returns the tick of the last event, which is the length of the track.
+	 */
+	public long getTickLength() {
+		return size == 0 ? 0 : ticks[size - 1];
+	}
+
+	/**
+	 * Checks whether the event at the given index is a channel message.
+	 */
+	public boolean isShortMessage(int index) {
+		return messages[index] >= 0;
+	}
+
+	/**
+	 * Returns the status byte of the event at the given index.
+	 */
+	public int getStatus(int index) {
+		int message = messages[index];
+		return message >= 0 ? message & 0xFF : payloadTypes[~message] & 0xFF;
+	}
+
+	public int getData1(int index) {
+		return (messages[index] >> 8) & 0xFF;
+	}
+
+	public int getData2(int index) {
+		return (messages[index] >> 16) & 0xFF;
+	}
+
+	/**
+	 * Returns the type of the meta message at the given index.
+	 */
+	public int getMetaType(int index) {
+		return payloadTypes[~messages[index]] >> 8;
+	}
+
+	/**
+	 * Returns the data of the meta or system exclusive message at the given
+	 * index, which must not be modified.
+	 */
+	public byte[] getData(int index) {
+		return payloads[~messages[index]];
+	}
+
+	/**
+	 * Returns a hash code of the channel messages and their ticks, which can
+	 * be used to detect whether the notes of a track changed.
+	 */
+	public int getShortMessagesHashCode() {
+		int result = 1;
+		for (int i = 0; i < size; i++) {
+			if (messages[i] >= 0) {
+				result = 31 * result + (int)(ticks[i] ^ (ticks[i] >>> 32));
+				result = 31 * result + messages[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether the given track has the same channel messages at the
+	 * same ticks as this track, e.g. to verify a match of
+	 * {@link #getShortMessagesHashCode()}.
+	 */
+	public boolean hasSameShortMessages(CompactTrack other) {
+		int i = 0;
+		int j = 0;
+		while (true) {
+			while (i < size && messages[i] < 0) {
+				i++;
+			}
+			while (j < other.size && other.messages[j] < 0) {
+				j++;
+			}
+			if (i == size || j == other.size) {
+				return i == size && j == other.size;
+			}
+			if (ticks[i] != other.ticks[j] || messages[i] != other.messages[j]) {
+				return false;
+			}
+			i++;
+			j++;
+		}
+	}
+
+	/**
+	 * Creates the message objects of the events and adds them to the given
+	 * track.
+	 */
+	public void addTo(Track track) throws InvalidMidiDataException {
+		for (int i = 0; i < size; i++) {
+			track.add(new MidiEvent(createMessage(i), ticks[i]));
+		}
+	}
+
+	private MidiMessage createMessage(int index) throws InvalidMidiDataException {
+		int status = getStatus(index);
+		if (isShortMessage(index)) {
+			return new ShortMessage(status, getData1(index), getData2(index));
+		}
+		byte[] data = getData(index);
+		if (status == MetaMessage.META) {
+			return new MetaMessage(getMetaType(index), data, data.length);
+		}
+		byte[] sysexData = new byte[data.length + 1];
+		sysexData[0] = (byte)status;
+		System.arraycopy(data, 0, sysexData, 1, data.length);
+		return new SysexMessage(sysexData, sysexData.length);
+	}
+
+}
@@ -0,0 +1,190 @@
+package javax.util.midi;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Sequence;
+
+/**
+ * Reads standard MIDI files into {@link CompactSequence}s. The file is parsed
+ * in a single pass while it is streamed, and the events are stored in
+ * primitive arrays instead of one event and one message object each, which
+ * is much faster and needs much less memory for long sequences than
+ * {@link javax.sound.midi.MidiSystem#getSequence(File)}.
+ */
+public class MidiFileReader {
+
+	private static final int HEADER_CHUNK = 0x4D546864; // MThd
+
+	private static final int TRACK_CHUNK = 0x4D54726B; // MTrk
+
+	private static final int META = 0xFF;
+
+	private static final int SYSTEM_EXCLUSIVE = 0xF0;
+
+	private static final int SPECIAL_SYSTEM_EXCLUSIVE = 0xF7;
+
+	private final DataInputStream input;
+
+	/**
+	 * The number of bytes left in the current track chunk.
+	 */
+	private long remaining;
+
+	private MidiFileReader(InputStream input) {
+		this.input = new DataInputStream(input);
+	}
+
+	public static CompactSequence read(File file) throws InvalidMidiDataException, IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return read(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads a standard MIDI file from the given stream, which is not closed.
+	 */
+	public static CompactSequence read(InputStream input) throws InvalidMidiDataException, IOException {
+		return new MidiFileReader(input).readSequence();
+	}
+
+	private CompactSequence readSequence() throws InvalidMidiDataException, IOException {
+		if (input.readInt() != HEADER_CHUNK) {
+			throw new InvalidMidiDataException("Not a standard MIDI file");
+		}
+		int headerLength = input.readInt();
+		if (headerLength < 6) {
+			throw new InvalidMidiDataException("Invalid header length: " + headerLength);
+		}
+		int format = input.readUnsignedShort();
+		if (format > 2) {
+			throw new InvalidMidiDataException("Unsupported MIDI file format: " + format);
+		}
+		int trackCount = input.readUnsignedShort();
+		int division = input.readShort();
+		skipFully(headerLength - 6);
+		CompactSequence result;
+		if (division < 0) {
+			result = new CompactSequence(getSmpteDivisionType(-(division >> 8)), division & 0xFF);
+		} else {
+			result = new CompactSequence(Sequence.PPQ, division);
+		}
+		for (int i = 0; i < trackCount; i++) {
+			int chunkType;
+			try {
+				chunkType = input.readInt();
+			} catch (EOFException e) {
+				// Tolerate files with fewer tracks than declared
+				break;
+			}
+			long chunkLength = input.readInt() & 0xFFFFFFFFL;
+			if (chunkType == TRACK_CHUNK) {
+				remaining = chunkLength;
+				result.addTrack(readTrack());
+			} else {
+				// Unknown chunks are skipped and don't count as tracks
+				skipFully(chunkLength);
+				i--;
+			}
+		}
+		result.tracksAdded();
+		return result;
+	}
+
+	private static float getSmpteDivisionType(int framesPerSecond) throws InvalidMidiDataException {
+		switch (framesPerSecond) {
+		case 24:
+			return Sequence.SMPTE_24;
+		case 25:
+			return Sequence.SMPTE_25;
+		case 29:
+			return Sequence.SMPTE_30DROP;
+		case 30:
+			return Sequence.SMPTE_30;
+		default:
+			throw new InvalidMidiDataException("Invalid SMPTE frame rate: " + framesPerSecond);
+		}
+	}
+
+	private CompactTrack readTrack() throws InvalidMidiDataException, IOException {
+		CompactTrack track = new CompactTrack();
+		long tick = 0;
+		int runningStatus = -1;
+		while (remaining > 0) {
+			tick += readVariableLength();
+			int status = readUnsignedByte();
+			if (status < 0x80) {
+				// Running status, the byte read is the first data byte
+				if (runningStatus < 0) {
+					throw new InvalidMidiDataException("Missing status byte at tick " + tick);
+				}
+				track.addShortMessage(tick, runningStatus, status, getDataLength(runningStatus) > 1 ? readUnsignedByte() : 0);
+			} else if (status == META) {
+				int type = readUnsignedByte();
+				track.addPayloadMessage(tick, status, type, readBytes(readVariableLength()));
+			} else if (status == SYSTEM_EXCLUSIVE || status == SPECIAL_SYSTEM_EXCLUSIVE) {
+				track.addPayloadMessage(tick, status, 0, readBytes(readVariableLength()));
+				runningStatus = -1;
+			} else if (status < SYSTEM_EXCLUSIVE) {
+				runningStatus = status;
+				int dataLength = getDataLength(status);
+				int data1 = readUnsignedByte();
+				track.addShortMessage(tick, status, data1, dataLength > 1 ? readUnsignedByte() : 0);
+			} else {
+				throw new InvalidMidiDataException("Invalid status byte " + Integer.toHexString(status) + " at tick " + tick);
+			}
+		}
+		track.trim();
+		return track;
+	}
+
+	private static int getDataLength(int status) {
+		int command = status & 0xF0;
+		return command == 0xC0 || command == 0xD0 ? 1 : 2;
+	}
+
+	private int readUnsignedByte() throws IOException {
+		remaining--;
+		return input.readUnsignedByte();
+	}
+
+	private int readVariableLength() throws InvalidMidiDataException, IOException {
+		int result = 0;
+		for (int i = 0; i < 4; i++) {
+			int value = readUnsignedByte();
+			result = (result << 7) | (value & 0x7F);
+			if (value < 0x80) {
+				return result;
+			}
+		}
+		throw new InvalidMidiDataException("Invalid variable length quantity");
+	}
+
+	private byte[] readBytes(int length) throws IOException {
+		byte[] result = new byte[length];
+		input.readFully(result);
+		remaining -= length;
+		return result;
+	}
+
+	private void skipFully(long length) throws IOException {
+		while (length > 0) {
+			long skipped = input.skip(length);
+			if (skipped <= 0) {
+				input.readByte();
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+
+}
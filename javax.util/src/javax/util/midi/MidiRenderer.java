@@ -0,0 +1,351 @@
+package javax.util.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Renders MIDI sequences to WAV files offline, faster than real time, with the
+ * software synthesizer of the JDK. Every track is rendered by a synthesizer
+ * of its own on a separate thread, and the tracks are mixed down chunk by
+ * chunk, so memory use doesn't depend on the length of the sequence.
+ * <p>
+ * The audio stream of the synthesizer is opened through a method which isn't
+ * part of the public API. On Java 9 and later, its package must be exported
+ * with <code>--add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED</code>
+ * in the VM arguments, otherwise {@link #isSupported()} returns
+ * <code>false</code>.
+ */
+public class MidiRenderer {
+
+	/**
+	 * Receives the progress of rendering and may cancel it.
+	 */
+	public interface Progress {
+
+		void rendered(long microseconds, long totalMicroseconds);
+
+		boolean isCanceled();
+
+	}
+
+	public static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+	private static final long CHUNK_MICROSECONDS = 250000;
+
+	/**
+	 * The time added to the end of the sequence for the notes to fade out.
+	 */
+	private static final long TAIL_MICROSECONDS = 2000000;
+
+	private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+	private MidiRenderer() {
+	}
+
+	/**
+	 * Looks up the method opening an audio stream of the default synthesizer
+	 * once, when it is needed for the first time.
+	 */
+	private static class OpenStreamMethod {
+
+		/**
+		 * The method, or <code>null</code> if it isn't available or accessible.
+		 */
+		static final Method METHOD = find();
+
+		private static Method find() {
+			try {
+				Method method = MidiSystem.getSynthesizer().getClass().getMethod("openStream", AudioFormat.class, Map.class); //$NON-NLS-1$
+				method.setAccessible(true);
+				return method;
+			} catch (MidiUnavailableException | ReflectiveOperationException | RuntimeException e) {
+				return null;
+			}
+		}
+
+	}
+
+	/**
+	 * Returns whether the synthesizer of the running JRE can render offline.
+	 */
+	public static boolean isSupported() {
+		return OpenStreamMethod.METHOD != null;
+	}
+
+	/**
+	 * Renders the tracks of the given sequence which are enabled in the given
+	 * array to the given WAV file. Returns <code>false</code> if rendering was
+	 * cancelled, in which case the file is incomplete.
+	 */
+	public static boolean render(CompactSequence sequence, boolean[] enabledTracks, File waveFile, Progress progress) throws MidiUnavailableException, InvalidMidiDataException, IOException {
+		CompactTrack[] tracks = sequence.getTracks();
+		List<TrackRenderer> renderers = new ArrayList<TrackRenderer>();
+		ExecutorService executor = null;
+		WaveFileWriter writer = new WaveFileWriter(waveFile, FORMAT);
+		try {
+			for (int i = 0; i < tracks.length; i++) {
+				if (enabledTracks[i] && hasNotes(tracks[i])) {
+					renderers.add(new TrackRenderer(sequence, i));
+				}
+			}
+			executor = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_THREADS, renderers.size())));
+			long totalMicroseconds = sequence.getMicrosecondLength() + TAIL_MICROSECONDS;
+			int frameSize = FORMAT.getFrameSize();
+			byte[] mix = new byte[0];
+			for (long start = 0; start < totalMicroseconds; start += CHUNK_MICROSECONDS) {
+				if (progress.isCanceled()) {
+					return false;
+				}
+				final long end = Math.min(start + CHUNK_MICROSECONDS, totalMicroseconds);
+				final int frames = (int)(microsecondsToFrames(end) - microsecondsToFrames(start));
+				List<Future<byte[]>> chunks = new ArrayList<Future<byte[]>>();
+				for (final TrackRenderer renderer : renderers) {
+					chunks.add(executor.submit(new Callable<byte[]>() {
+
+						@Override
+						public byte[] call() throws Exception {
+							return renderer.render(end, frames);
+						}
+
+					}));
+				}
+				if (mix.length != frames * frameSize) {
+					mix = new byte[frames * frameSize];
+				}
+				mix(chunks, mix);
+				writer.write(mix, 0, mix.length);
+				progress.rendered(end, totalMicroseconds);
+			}
+			return true;
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			for (TrackRenderer renderer : renderers) {
+				renderer.close();
+			}
+			writer.close();
+		}
+	}
+
+	private static long microsecondsToFrames(long microseconds) {
+		return (long)(microseconds * (double)FORMAT.getFrameRate() / 1000000);
+	}
+
+	private static boolean hasNotes(CompactTrack track) {
+		for (int i = 0; i < track.size(); i++) {
+			if (track.isShortMessage(i) && (track.getStatus(i) & 0xF0) == ShortMessage.NOTE_ON) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sums the 16 bit little-endian samples of the given chunks into the given
+	 * buffer, clipping them to the valid range.
+	 */
+	private static void mix(List<Future<byte[]>> chunks, byte[] mix) throws IOException, MidiUnavailableException {
+		int[] sums = new int[mix.length / 2];
+		try {
+			for (Future<byte[]> chunk : chunks) {
+				byte[] data = chunk.get();
+				for (int i = 0; i < sums.length; i++) {
+					sums[i] += (short)((data[2 * i] & 0xFF) | (data[2 * i + 1] << 8));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Rendering interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			throw new IOException("Can't render MIDI track", cause);
+		}
+		for (int i = 0; i < sums.length; i++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sums[i]));
+			mix[2 * i] = (byte)sample;
+			mix[2 * i + 1] = (byte)(sample >> 8);
+		}
+	}
+
+	/**
+	 * Opens an audio stream of the given synthesizer. Only the software
+	 * synthesizer of the JDK supports this, see {@link #isSupported()}.
+	 */
+	private static AudioInputStream openStream(Synthesizer synthesizer) throws MidiUnavailableException {
+		Method openStream = OpenStreamMethod.METHOD;
+		if (openStream == null || !openStream.getDeclaringClass().isInstance(synthesizer)) {
+			throw new MidiUnavailableException("The synthesizer can't render offline: " + synthesizer.getDeviceInfo().getName() + ". On Java 9 and later, add --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED to the VM arguments.");
+		}
+		try {
+			return (AudioInputStream)openStream.invoke(synthesizer, FORMAT, null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			MidiUnavailableException exception = new MidiUnavailableException("The synthesizer can't render offline: " + synthesizer.getDeviceInfo().getName());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Renders a single track. It receives all events of its track and the
+	 * program and controller changes of the other tracks, which may set up the
+	 * channels used by it.
+	 */
+	private static class TrackRenderer {
+
+		private final Synthesizer synthesizer;
+
+		private final AudioInputStream stream;
+
+		private final Receiver receiver;
+
+		private final List<EventCursor> cursors = new ArrayList<EventCursor>();
+
+		private TrackRenderer(CompactSequence sequence, int trackIndex) throws MidiUnavailableException {
+			synthesizer = MidiSystem.getSynthesizer();
+			stream = openStream(synthesizer);
+			receiver = synthesizer.getReceiver();
+			long[] tempoChanges = sequence.getTempoChanges();
+			CompactTrack[] tracks = sequence.getTracks();
+			for (int i = 0; i < tracks.length; i++) {
+				cursors.add(new EventCursor(sequence, tempoChanges, tracks[i], i == trackIndex));
+			}
+		}
+
+		/**
+		 * Sends the events before the given time to the synthesizer and returns
+		 * the given number of frames of audio.
+		 */
+		private byte[] render(long end, int frames) throws InvalidMidiDataException, IOException {
+			for (EventCursor cursor : cursors) {
+				cursor.send(receiver, end);
+			}
+			byte[] result = new byte[frames * FORMAT.getFrameSize()];
+			int offset = 0;
+			while (offset < result.length) {
+				int read = stream.read(result, offset, result.length - offset);
+				if (read < 0) {
+					break;
+				}
+				offset += read;
+			}
+			return result;
+		}
+
+		private void close() {
+			synthesizer.close();
+		}
+
+	}
+
+	/**
+	 * Iterates over the events of a track in time order, converting their ticks
+	 * to microseconds on the way.
+	 */
+	private static class EventCursor {
+
+		private final CompactTrack track;
+
+		private final boolean allEvents;
+
+		private final float divisionType;
+
+		private final int resolution;
+
+		private final long[] tempoChanges;
+
+		private int index;
+
+		private int tempoIndex;
+
+		private long tempoTick;
+
+		private double tempoMicroseconds;
+
+		private int microsecondsPerQuarter = 500000;
+
+		private EventCursor(CompactSequence sequence, long[] tempoChanges, CompactTrack track, boolean allEvents) {
+			this.track = track;
+			this.allEvents = allEvents;
+			this.tempoChanges = tempoChanges;
+			divisionType = sequence.getDivisionType();
+			resolution = sequence.getResolution();
+		}
+
+		private void send(Receiver receiver, long end) throws InvalidMidiDataException {
+			while (index < track.size()) {
+				long microseconds = toMicroseconds(track.getTick(index));
+				if (microseconds >= end) {
+					return;
+				}
+				MidiMessage message = createMessage(index);
+				if (message != null) {
+					receiver.send(message, microseconds);
+				}
+				index++;
+			}
+		}
+
+		private MidiMessage createMessage(int index) throws InvalidMidiDataException {
+			int status = track.getStatus(index);
+			if (track.isShortMessage(index)) {
+				int command = status & 0xF0;
+				if (allEvents || command == ShortMessage.PROGRAM_CHANGE || command == ShortMessage.CONTROL_CHANGE) {
+					return new ShortMessage(status, track.getData1(index), track.getData2(index));
+				}
+			} else if (status != MetaMessage.META) {
+				byte[] data = track.getData(index);
+				byte[] sysexData = new byte[data.length + 1];
+				sysexData[0] = (byte)status;
+				System.arraycopy(data, 0, sysexData, 1, data.length);
+				return new SysexMessage(sysexData, sysexData.length);
+			}
+			return null;
+		}
+
+		/**
+		 * Converts the given tick, which must not be before the tick of the
+		 * previous call.
+		 */
+		private long toMicroseconds(long tick) {
+			if (divisionType != Sequence.PPQ) {
+				return (long)(tick * 1000000d / (divisionType * resolution));
+			}
+			while (tempoIndex < tempoChanges.length && (tempoChanges[tempoIndex] >>> 24) <= tick) {
+				long changeTick = tempoChanges[tempoIndex] >>> 24;
+				tempoMicroseconds += (changeTick - tempoTick) * (double)microsecondsPerQuarter / resolution;
+				tempoTick = changeTick;
+				microsecondsPerQuarter = (int)(tempoChanges[tempoIndex] & 0xFFFFFF);
+				tempoIndex++;
+			}
+			return (long)(tempoMicroseconds + (tick - tempoTick) * (double)microsecondsPerQuarter / resolution);
+		}
+
+	}
+
+}
@@ -0,0 +1,165 @@
+package javax.util.midi;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.sound.midi.ShortMessage;
+
+/**
+ * An overview of the notes of a MIDI sequence: for every key and time slice,
+ * how much of the slice the key sounds. The map is stored at multiple
+ * resolutions, each with half as many time slices as the previous one, so
+ * that it can be drawn at any width without scanning the notes again.
+ * <p>
+ * The map is computed per track first, so that the tracks which didn't change
+ * can be reused when a sequence is reloaded.
+ */
+public class NoteDensityMap {
+
+	/**
+	 * The number of time slices at the highest resolution.
+	 */
+	public static final int SLICES = 1024;
+
+	public static final int KEYS = 128;
+
+	private static final int MAX_DENSITY = 255;
+
+	/**
+	 * The densities at each resolution, slice by slice, key by key.
+	 */
+	private final byte[][] levels;
+
+	private int lowestNote = KEYS;
+
+	private int highestNote = -1;
+
+	/**
+	 * Combines the given track densities as returned by
+	 * {@link #computeTrackDensities(CompactTrack, long)}.
+	 */
+	public NoteDensityMap(Collection<byte[]> trackDensities) {
+		int[] sums = new int[SLICES * KEYS];
+		for (byte[] densities : trackDensities) {
+			for (int i = 0; i < sums.length; i++) {
+				sums[i] += densities[i] & 0xFF;
+			}
+		}
+		int levelCount = Integer.numberOfTrailingZeros(SLICES) + 1;
+		levels = new byte[levelCount][];
+		levels[0] = new byte[SLICES * KEYS];
+		for (int i = 0; i < sums.length; i++) {
+			if (sums[i] > 0) {
+				int key = i % KEYS;
+				lowestNote = Math.min(lowestNote, key);
+				highestNote = Math.max(highestNote, key);
+			}
+			levels[0][i] = (byte)Math.min(MAX_DENSITY, sums[i]);
+		}
+		for (int level = 1; level < levelCount; level++) {
+			byte[] previous = levels[level - 1];
+			byte[] current = new byte[previous.length / 2];
+			for (int i = 0; i < current.length; i++) {
+				int slice = i / KEYS;
+				int key = i % KEYS;
+				// The maximum keeps short notes visible at low resolutions
+				current[i] = (byte)Math.max(previous[2 * slice * KEYS + key] & 0xFF, previous[(2 * slice + 1) * KEYS + key] & 0xFF);
+			}
+			levels[level] = current;
+		}
+	}
+
+	/**
+	 * Computes the densities of the notes of a single track at the highest
+	 * resolution, for a sequence of the given length in ticks.
+	 */
+	public static byte[] computeTrackDensities(CompactTrack track, long tickLength) {
+		double ticksPerSlice = Math.max(1, tickLength) / (double)SLICES;
+		double[] coverage = new double[SLICES * KEYS];
+		long[] noteStarts = new long[16 * KEYS];
+		Arrays.fill(noteStarts, -1);
+		for (int i = 0; i < track.size(); i++) {
+			if (!track.isShortMessage(i)) {
+				continue;
+			}
+			int status = track.getStatus(i);
+			int command = status & 0xF0;
+			if (command != ShortMessage.NOTE_ON && command != ShortMessage.NOTE_OFF) {
+				continue;
+			}
+			int key = track.getData1(i);
+			int note = (status & 0x0F) * KEYS + key;
+			long tick = track.getTick(i);
+			if (noteStarts[note] >= 0) {
+				addCoverage(coverage, key, noteStarts[note], tick, ticksPerSlice);
+				noteStarts[note] = -1;
+			}
+			if (command == ShortMessage.NOTE_ON && track.getData2(i) > 0) {
+				noteStarts[note] = tick;
+			}
+		}
+		for (int note = 0; note < noteStarts.length; note++) {
+			if (noteStarts[note] >= 0) {
+				addCoverage(coverage, note % KEYS, noteStarts[note], Math.max(tickLength, noteStarts[note] + 1), ticksPerSlice);
+			}
+		}
+		byte[] result = new byte[SLICES * KEYS];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (byte)Math.min(MAX_DENSITY, Math.round(coverage[i] * MAX_DENSITY));
+		}
+		return result;
+	}
+
+	private static void addCoverage(double[] coverage, int key, long start, long end, double ticksPerSlice) {
+		// Very short notes still cover a visible part of their slice
+		double startSlice = start / ticksPerSlice;
+		double endSlice = Math.max(end / ticksPerSlice, startSlice + 0.5);
+		for (int slice = (int)startSlice; slice < Math.min(SLICES, Math.ceil(endSlice)); slice++) {
+			double covered = Math.min(endSlice, slice + 1) - Math.max(startSlice, slice);
+			coverage[slice * KEYS + key] = Math.min(1, coverage[slice * KEYS + key] + covered);
+		}
+	}
+
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * Returns the level with the lowest resolution that still has at least as
+	 * many time slices as the given width, or the highest resolution.
+	 */
+	public int getLevel(int width) {
+		int level = 0;
+		while (level + 1 < levels.length && getSlices(level + 1) >= width) {
+			level++;
+		}
+		return level;
+	}
+
+	public int getSlices(int level) {
+		return SLICES >> level;
+	}
+
+	/**
+	 * Returns the density of the given key in the given time slice of the
+	 * given level, from 0 to 255.
+	 */
+	public int getDensity(int level, int slice, int key) {
+		return levels[level][slice * KEYS + key] & 0xFF;
+	}
+
+	/**
+	 * Returns the lowest key played, or {@link #KEYS} if there are no notes.
+	 */
+	public int getLowestNote() {
+		return lowestNote;
+	}
+
+	/**
+	 * Returns the highest key played, or -1 if there are no notes.
+	 */
+	public int getHighestNote() {
+		return highestNote;
+	}
+
+}
@@ -0,0 +1,42 @@
+package javax.util.midi;
+
+/**
+ * The metadata of a MIDI sequence and all its tracks. It is computed once, when the
+ * sequence is loaded, so that looking up a track doesn't scan its events or
+ * the track list again.
+ */
+public class SequenceInfo {
+
+	private final TrackInfo[] tracks;
+
+	private final long tickLength;
+
+	private final long microsecondLength;
+
+	public SequenceInfo(CompactSequence sequence) {
+		CompactTrack[] sequenceTracks = sequence.getTracks();
+		tracks = new TrackInfo[sequenceTracks.length];
+		for (int i = 0; i < sequenceTracks.length; i++) {
+			tracks[i] = new TrackInfo(sequenceTracks[i], i);
+		}
+		tickLength = sequence.getTickLength();
+		microsecondLength = sequence.getMicrosecondLength();
+	}
+
+	public long getTickLength() {
+		return tickLength;
+	}
+
+	public long getMicrosecondLength() {
+		return microsecondLength;
+	}
+
+	public TrackInfo[] getTracks() {
+		return tracks.clone();
+	}
+
+	public TrackInfo getTrack(int index) {
+		return tracks[index];
+	}
+
+}
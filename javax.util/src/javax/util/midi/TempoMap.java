@@ -0,0 +1,200 @@
+package javax.util.midi;
+
+import java.util.Arrays;
+
+import javax.sound.midi.Sequence;
+
+/**
+ * Converts between ticks, microseconds and bars and beats of a sequence. The
+ * tempo and time signature changes are collected once into sorted segments,
+ * so that every conversion is a binary search.
+ */
+public class TempoMap {
+
+	private static final int TIME_SIGNATURE = 0x58;
+
+	private static final int DEFAULT_MICROSECONDS_PER_QUARTER = 500000;
+
+	private static final int DEFAULT_NUMERATOR = 4;
+
+	private static final int DEFAULT_DENOMINATOR_POWER = 2;
+
+	private final float divisionType;
+
+	private final int resolution;
+
+	/**
+	 * The first tick of each tempo segment, starting with tick 0.
+	 */
+	private final long[] segmentTicks;
+
+	private final double[] segmentMicroseconds;
+
+	private final int[] segmentTempos;
+
+	private final int segmentCount;
+
+	/**
+	 * The first tick of each meter segment, starting with tick 0.
+	 */
+	private final long[] meterTicks;
+
+	/**
+	 * The bar started at the first tick of each meter segment.
+	 */
+	private final int[] meterBars;
+
+	private final int[] beatsPerBar;
+
+	private final int[] ticksPerBeat;
+
+	private final int meterCount;
+
+	TempoMap(CompactSequence sequence) {
+		divisionType = sequence.getDivisionType();
+		resolution = sequence.getResolution();
+		long[] tempoChanges = divisionType == Sequence.PPQ ? sequence.getTempoChanges() : new long[0];
+		segmentTicks = new long[tempoChanges.length + 1];
+		segmentMicroseconds = new double[segmentTicks.length];
+		segmentTempos = new int[segmentTicks.length];
+		segmentTempos[0] = DEFAULT_MICROSECONDS_PER_QUARTER;
+		int count = 1;
+		for (long tempoChange : tempoChanges) {
+			long tick = tempoChange >>> 24;
+			int tempo = (int)(tempoChange & 0xFFFFFF);
+			// A later change at the same tick replaces the segment
+			if (tick > segmentTicks[count - 1]) {
+				segmentTicks[count] = tick;
+				segmentMicroseconds[count] = segmentMicroseconds[count - 1] + (tick - segmentTicks[count - 1]) * (double)segmentTempos[count - 1] / resolution;
+				count++;
+			}
+			segmentTempos[count - 1] = tempo;
+		}
+		segmentCount = count;
+
+		long[] timeSignatures = divisionType == Sequence.PPQ ? collectTimeSignatures(sequence) : new long[0];
+		meterTicks = new long[timeSignatures.length + 1];
+		meterBars = new int[meterTicks.length];
+		beatsPerBar = new int[meterTicks.length];
+		ticksPerBeat = new int[meterTicks.length];
+		beatsPerBar[0] = DEFAULT_NUMERATOR;
+		ticksPerBeat[0] = getTicksPerBeat(DEFAULT_DENOMINATOR_POWER);
+		int meterCount = 1;
+		for (long timeSignature : timeSignatures) {
+			long tick = timeSignature >>> 16;
+			if (tick > meterTicks[meterCount - 1]) {
+				long barTicks = (long)beatsPerBar[meterCount - 1] * ticksPerBeat[meterCount - 1];
+				meterTicks[meterCount] = tick;
+				// A change within a bar starts the next bar
+				meterBars[meterCount] = meterBars[meterCount - 1] + (int)((tick - meterTicks[meterCount - 1] + barTicks - 1) / barTicks);
+				meterCount++;
+			}
+			beatsPerBar[meterCount - 1] = Math.max(1, (int)((timeSignature >> 8) & 0xFF));
+			ticksPerBeat[meterCount - 1] = getTicksPerBeat((int)(timeSignature & 0xFF));
+		}
+
+		this.meterCount = meterCount;
+	}
+
+	private int getTicksPerBeat(int denominatorPower) {
+		return Math.max(1, (resolution * 4) >> Math.min(denominatorPower, 6));
+	}
+
+	/**
+	 * Returns the time signatures of all tracks sorted by tick, each packed as
+	 * tick &lt;&lt; 16 | numerator &lt;&lt; 8 | denominator power.
+	 */
+	private static long[] collectTimeSignatures(CompactSequence sequence) {
+		long[] result = new long[4];
+		int count = 0;
+		for (CompactTrack track : sequence.getTracks()) {
+			for (int i = 0; i < track.size(); i++) {
+				if (!track.isShortMessage(i) && track.getStatus(i) == 0xFF && track.getMetaType(i) == TIME_SIGNATURE) {
+					byte[] data = track.getData(i);
+					if (data.length >= 2) {
+						if (count == result.length) {
+							result = Arrays.copyOf(result, count * 2);
+						}
+						result[count++] = (track.getTick(i) << 16) | ((data[0] & 0xFF) << 8) | (data[1] & 0xFF);
+					}
+				}
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Returns the time at which the given tick is reached.
+	 */
+	public long getMicrosecond(long tick) {
+		if (divisionType != Sequence.PPQ) {
+			return (long)(tick * 1000000d / (divisionType * resolution));
+		}
+		int segment = findSegment(segmentTicks, segmentCount, tick);
+		return (long)(segmentMicroseconds[segment] + (tick - segmentTicks[segment]) * (double)segmentTempos[segment] / resolution);
+	}
+
+	/**
+	 * Returns the tick reached after the given time.
+	 */
+	public long getTick(long microseconds) {
+		if (divisionType != Sequence.PPQ) {
+			return (long)(microseconds * (divisionType * resolution) / 1000000d);
+		}
+		int low = 0;
+		int high = segmentCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (segmentMicroseconds[middle] <= microseconds) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return segmentTicks[low] + (long)((microseconds - segmentMicroseconds[low]) * resolution / segmentTempos[low]);
+	}
+
+	/**
+	 * Returns the tempo at the given tick in microseconds per quarter note.
+	 */
+	public int getTempo(long tick) {
+		return segmentTempos[findSegment(segmentTicks, segmentCount, tick)];
+	}
+
+	/**
+	 * Checks whether the sequence is measured in bars and beats, i.e. its
+	 * division type is PPQ.
+	 */
+	public boolean hasBars() {
+		return divisionType == Sequence.PPQ;
+	}
+
+	/**
+	 * Returns the bar containing the given tick, counted from 0.
+	 */
+	public int getBar(long tick) {
+		int meter = findSegment(meterTicks, meterCount, tick);
+		return meterBars[meter] + (int)((tick - meterTicks[meter]) / ((long)beatsPerBar[meter] * ticksPerBeat[meter]));
+	}
+
+	/**
+	 * Returns the beat within its bar containing the given tick, counted from
+	 * 0.
+	 */
+	public int getBeat(long tick) {
+		int meter = findSegment(meterTicks, meterCount, tick);
+		return (int)((tick - meterTicks[meter]) / ticksPerBeat[meter] % beatsPerBar[meter]);
+	}
+
+	/**
+	 * Returns the index of the last segment starting at or before the given
+	 * tick.
+	 */
+	private static int findSegment(long[] startTicks, int count, long tick) {
+		int index = Arrays.binarySearch(startTicks, 0, count, tick);
+		return index >= 0 ? index : Math.max(0, -index - 2);
+	}
+
+}
@@ -0,0 +1,122 @@
+package javax.util.midi;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * The metadata of a MIDI track, computed by scanning its events once.
+ */
+public class TrackInfo {
+
+	private final int index;
+
+	private String name;
+
+	private int channelMask;
+
+	private int program = -1;
+
+	private int noteCount;
+
+	private int lowestNote = -1;
+
+	private int highestNote = -1;
+
+	public TrackInfo(CompactTrack track, int index) {
+		this.index = index;
+		for (int i = 0; i < track.size(); i++) {
+			int status = track.getStatus(i);
+			if (track.isShortMessage(i)) {
+				addShortMessage(status, track.getData1(i), track.getData2(i));
+			} else if (status == MetaMessage.META) {
+				addMetaMessage(track.getMetaType(i), track.getData(i));
+			}
+		}
+	}
+
+	private void addMetaMessage(int type, byte[] data) {
+		if (name == null && type == MidiUtils.TRACK_NAME) {
+			name = new String(data);
+		}
+	}
+
+	private void addShortMessage(int status, int data1, int data2) {
+		int command = status & 0xF0;
+		if (command < ShortMessage.NOTE_OFF || command > ShortMessage.PITCH_BEND) {
+			// System messages don't belong to a channel
+			return;
+		}
+		channelMask |= 1 << (status & 0x0F);
+		if (command == ShortMessage.PROGRAM_CHANGE && program < 0) {
+			program = data1;
+		} else if (command == ShortMessage.NOTE_ON && data2 > 0) {
+			int note = data1;
+			noteCount++;
+			if (lowestNote < 0 || note < lowestNote) {
+				lowestNote = note;
+			}
+			if (note > highestNote) {
+				highestNote = note;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of the track in its sequence.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the name of the track, or <code>null</code> if it has none.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the numbers of the channels used by the track.
+	 */
+	public int[] getChannels() {
+		int[] result = new int[Integer.bitCount(channelMask)];
+		int i = 0;
+		for (int channel = 0; channel < 16; channel++) {
+			if (usesChannel(channel)) {
+				result[i++] = channel;
+			}
+		}
+		return result;
+	}
+
+	public boolean usesChannel(int channel) {
+		return (channelMask & (1 << channel)) != 0;
+	}
+
+	/**
+	 * Returns the first program (instrument) selected by the track, or -1 if
+	 * it doesn't select any.
+	 */
+	public int getProgram() {
+		return program;
+	}
+
+	public int getNoteCount() {
+		return noteCount;
+	}
+
+	/**
+	 * Returns the lowest key played by the track, or -1 if it has no notes.
+	 */
+	public int getLowestNote() {
+		return lowestNote;
+	}
+
+	/**
+	 * Returns the highest key played by the track, or -1 if it has no notes.
+	 */
+	public int getHighestNote() {
+		return highestNote;
+	}
+
+}
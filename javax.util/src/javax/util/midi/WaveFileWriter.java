@@ -0,0 +1,93 @@
+package javax.util.midi;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Writes PCM audio data to a WAV file as it is produced, so that the audio
+ * doesn't have to be kept in memory. The sizes in the header are filled in
+ * when the writer is closed.
+ */
+public class WaveFileWriter {
+
+	private static final int HEADER_SIZE = 44;
+
+	private final File file;
+
+	private final OutputStream output;
+
+	private long dataSize;
+
+	/**
+	 * Creates the given file for audio data in the given format, which must be
+	 * signed little-endian PCM.
+	 */
+	public WaveFileWriter(File file, AudioFormat format) throws IOException {
+		if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.isBigEndian()) {
+			throw new IllegalArgumentException("Unsupported audio format: " + format);
+		}
+		this.file = file;
+		output = new BufferedOutputStream(new FileOutputStream(file));
+		int channels = format.getChannels();
+		int sampleRate = (int)format.getSampleRate();
+		int bitsPerSample = format.getSampleSizeInBits();
+		int frameSize = channels * bitsPerSample / 8;
+		writeAscii("RIFF"); //$NON-NLS-1$
+		writeInt(0); // filled in by close()
+		writeAscii("WAVE"); //$NON-NLS-1$
+		writeAscii("fmt "); //$NON-NLS-1$
+		writeInt(16);
+		writeShort(1); // PCM
+		writeShort(channels);
+		writeInt(sampleRate);
+		writeInt(sampleRate * frameSize);
+		writeShort(frameSize);
+		writeShort(bitsPerSample);
+		writeAscii("data"); //$NON-NLS-1$
+		writeInt(0); // filled in by close()
+	}
+
+	private void writeAscii(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			output.write(text.charAt(i));
+		}
+	}
+
+	private void writeInt(int value) throws IOException {
+		writeShort(value);
+		writeShort(value >>> 16);
+	}
+
+	private void writeShort(int value) throws IOException {
+		output.write(value);
+		output.write(value >>> 8);
+	}
+
+	public void write(byte[] data, int offset, int length) throws IOException {
+		output.write(data, offset, length);
+		dataSize += length;
+	}
+
+	/**
+	 * Closes the file and writes the final sizes into its header.
+	 */
+	public void close() throws IOException {
+		output.close();
+		RandomAccessFile header = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			header.seek(4);
+			header.writeInt(Integer.reverseBytes((int)(HEADER_SIZE - 8 + dataSize)));
+			header.seek(HEADER_SIZE - 4);
+			header.writeInt(Integer.reverseBytes((int)dataSize));
+		} finally {
+			header.close();
+		}
+	}
+
+}
@@ -16,25 +16,11 @@ public class ImageUtils {
 
 	/**
 	 * Converts an AWT image representation (BufferedImage) to its SWT equivalent
-	 * (ImageData).
+	 * (ImageData). Images with an index color model keep their palette, all
+	 * others are converted to direct RGB pixels row by row.
 	 */
 	public static ImageData convertBufferedImageToImageData(BufferedImage bufferedImage) {
-		if (bufferedImage.getColorModel() instanceof DirectColorModel) {
-			DirectColorModel colorModel = (DirectColorModel)bufferedImage.getColorModel();
-			PaletteData palette = new PaletteData(colorModel.getRedMask(), colorModel.getGreenMask(), colorModel.getBlueMask());
-			ImageData data = new ImageData(bufferedImage.getWidth(), bufferedImage.getHeight(), colorModel.getPixelSize(), palette);
-			for (int y = 0; y < data.height; y++) {
-				for (int x = 0; x < data.width; x++) {
-					int rgb = bufferedImage.getRGB(x, y);
-					int pixel = palette.getPixel(new RGB((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
-					data.setPixel(x, y, pixel);
-					if (colorModel.hasAlpha()) {
-						data.setAlpha(x, y, (rgb >> 24) & 0xFF);
-					}
-				}
-			}
-			return data;
-		} else if (bufferedImage.getColorModel() instanceof IndexColorModel) {
+		if (bufferedImage.getColorModel() instanceof IndexColorModel) {
 			IndexColorModel colorModel = (IndexColorModel)bufferedImage.getColorModel();
 			int size = colorModel.getMapSize();
 			byte[] reds = new byte[size];
@@ -51,16 +37,32 @@ public class ImageUtils {
 			ImageData data = new ImageData(bufferedImage.getWidth(), bufferedImage.getHeight(), colorModel.getPixelSize(), palette);
 			data.transparentPixel = colorModel.getTransparentPixel();
 			WritableRaster raster = bufferedImage.getRaster();
-			int[] pixelArray = new int[1];
+			int[] pixels = new int[data.width];
 			for (int y = 0; y < data.height; y++) {
+				raster.getSamples(0, y, data.width, 1, 0, pixels);
+				data.setPixels(0, y, data.width, pixels, 0);
+			}
+			return data;
+		} else {
+			boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
+			PaletteData palette = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+			ImageData data = new ImageData(bufferedImage.getWidth(), bufferedImage.getHeight(), hasAlpha ? 32 : 24, palette);
+			int[] pixels = new int[data.width];
+			byte[] alphas = hasAlpha ? new byte[data.width] : null;
+			for (int y = 0; y < data.height; y++) {
+				bufferedImage.getRGB(0, y, data.width, 1, pixels, 0, data.width);
 				for (int x = 0; x < data.width; x++) {
-					raster.getPixel(x, y, pixelArray);
-					data.setPixel(x, y, pixelArray[0]);
+					if (hasAlpha) {
+						alphas[x] = (byte)(pixels[x] >>> 24);
+					}
+					pixels[x] &= 0xFFFFFF;
+				}
+				data.setPixels(0, y, data.width, pixels, 0);
+				if (hasAlpha) {
+					data.setAlphas(0, y, data.width, alphas, 0);
 				}
 			}
 			return data;
-		} else {
-			return null;
 		}
 	}
 
@@ -15,15 +15,20 @@ public class Activator extends AbstractUIPlugin {
 
 	private static Activator instance;
 
+	private ViewedFileChangeListener fileChangeListener;
+
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		instance = this;
-		ResourcesPlugin.getWorkspace().addResourceChangeListener(new ViewedFileChangeListener(), IResourceChangeEvent.POST_CHANGE);
+		fileChangeListener = new ViewedFileChangeListener();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(fileChangeListener, IResourceChangeEvent.POST_CHANGE);
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(fileChangeListener);
+		fileChangeListener.dispose();
 		instance = null;
 		super.stop(context);
 	}
@@ -3,25 +3,36 @@ package org.eclipse.ui.views.file;
 import static java.text.MessageFormat.format;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.ActionContributionItem;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.IContributionItem;
 import org.eclipse.jface.action.IToolBarManager;
 import org.eclipse.jface.action.Separator;
+import org.eclipse.jface.dialogs.DialogSettings;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -30,6 +41,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IKeyBindingService;
@@ -71,19 +83,61 @@ public class FileView extends ViewPart implements IShowInTarget{
 
 	}
 
+	/**
+	 * Shown while the file of a page is loaded in the background.
+	 */
+	private static class LoadingPage extends Composite {
+
+		public LoadingPage(Composite parent, IFile file) {
+			super(parent, SWT.NONE);
+			setLayout(new GridLayout());
+			Label loadingLabel = new Label(this, SWT.CENTER);
+			loadingLabel.setLayoutData(new GridData(SWT.CENTER, SWT.CENTER, true, true));
+			loadingLabel.setText(format("Loading {0}...", file.getName()));
+		}
+
+	}
+
 	private static final String PATH = "path"; //$NON-NLS-1$
 
 	private static final String LINKED = "linked"; //$NON-NLS-1$
 
+	private static final String PAGES = "pages"; //$NON-NLS-1$
+
+	private static final String STATE = "state"; //$NON-NLS-1$
+
+	/**
+	 * How long the selection has to stay on a file before it is loaded.
+	 */
+	private static final int SELECTION_DELAY_MILLISECONDS = 250;
+
 	private IFileViewType<? super Composite> type;
 
 	private final List<String> extensions = new ArrayList<String>();
 
+	private final Set<String> extensionSet = new HashSet<String>();
+
 	private String errorMessage = "File not found";
 
 	private PageBook pageBook;
 
-	private final Map<IFile, Composite> pages = new HashMap<IFile, Composite>();
+	/**
+	 * The open pages, the least recently shown first.
+	 */
+	private final Map<IFile, Composite> pages = new LinkedHashMap<IFile, Composite>();
+
+	/**
+	 * The open files without a page, because their pages were closed to limit
+	 * the number of open pages or they weren't shown since the view was
+	 * restored. They are still offered to be shown and loaded on demand.
+	 */
+	private final Set<IFile> unloadedFiles = new LinkedHashSet<IFile>();
+
+	/**
+	 * The saved states of the pages of the unloaded files, restored when
+	 * their pages are created.
+	 */
+	private final Map<IFile, IDialogSettings> pageStates = new HashMap<IFile, IDialogSettings>();
 
 	private IFile file;
 
@@ -99,6 +153,13 @@ public class FileView extends ViewPart implements IShowInTarget{
 
 	private boolean linked = true;
 
+	/**
+	 * The job loading a file in the background, if any.
+	 */
+	private Job pageLoadJob;
+
+	private IFile pageLoadFile;
+
 	@Override
 	public void init(IViewSite site, IMemento memento) throws PartInitException {
 		super.init(site, memento);
@@ -120,6 +181,7 @@ public class FileView extends ViewPart implements IShowInTarget{
 				for (IConfigurationElement extensionElement : configurationElement.getChildren("fileExtension")) { //$NON-NLS-1$
 					extensions.add(extensionElement.getAttribute("extension")); //$NON-NLS-1$
 				}
+				extensionSet.addAll(extensions);
 				// Error message
 				String errorMessage = configurationElement.getAttribute("errorMessage"); //$NON-NLS-1$
 				if (errorMessage != null) {
@@ -142,6 +204,23 @@ public class FileView extends ViewPart implements IShowInTarget{
 				IFile file = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(path);
 				setFile(file);
 			}
+			// Other open files, loaded when they are shown
+			IDialogSettings pagesSettings = dialogSettings.getSection(getSettingsKey(PAGES));
+			if (pagesSettings != null) {
+				for (IDialogSettings pageSettings : pagesSettings.getSections()) {
+					String pagePathString = pageSettings.get(PATH);
+					IFile pageFile = pagePathString == null ? null : ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(Path.fromPortableString(pagePathString));
+					if (pageFile != null && pageFile.exists()) {
+						if (!pageFile.equals(getFile())) {
+							unloadedFiles.add(pageFile);
+						}
+						IDialogSettings state = pageSettings.getSection(STATE);
+						if (state != null) {
+							pageStates.put(pageFile, state);
+						}
+					}
+				}
+			}
 			// Linked
 			Boolean linked = dialogSettings.getBoolean(getSettingsKey(LINKED));
 			if (linked != null) {
@@ -209,9 +288,65 @@ public class FileView extends ViewPart implements IShowInTarget{
 		if(dialogSettings!=null){
 			dialogSettings.put(getSettingsKey(PATH), (file == null || file.getLocation() == null) ? null : file.getLocation().toPortableString());
 			dialogSettings.put(getSettingsKey(LINKED), linked);
+			IDialogSettings pagesSettings = dialogSettings.addNewSection(getSettingsKey(PAGES));
+			List<IFile> files = new ArrayList<IFile>(pages.keySet());
+			files.addAll(unloadedFiles);
+			int index = 0;
+			for (IFile openFile : files) {
+				if (openFile.getLocation() != null) {
+					IDialogSettings pageSettings = pagesSettings.addNewSection(Integer.toString(index++));
+					pageSettings.put(PATH, openFile.getLocation().toPortableString());
+					Composite page = pages.get(openFile);
+					IDialogSettings state = isLoaded(page) ? savePageState(page) : pageStates.get(openFile);
+					if (state != null) {
+						pageSettings.addSection(state);
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isLoaded(Composite page) {
+		return page != null && !page.isDisposed() && !(page instanceof LoadingPage);
+	}
+
+	/**
+	 * Returns the state of the given page, or <code>null</code> if the view
+	 * type doesn't save page states.
+	 */
+	private IDialogSettings savePageState(Composite page) {
+		if (!(getType() instanceof IPersistentFileViewType)) {
+			return null;
+		}
+		IDialogSettings result = new DialogSettings(STATE);
+		try {
+			getPersistentType().savePageState(page, result);
+		} catch (RuntimeException e) {
+			Activator.logError("Can't save the state of a file view page", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Restores the saved state of the given new page of the given file, if
+	 * any.
+	 */
+	private void restorePageState(IFile file, Composite page) {
+		IDialogSettings state = pageStates.remove(file);
+		if (state != null && page != null && getType() instanceof IPersistentFileViewType) {
+			try {
+				getPersistentType().restorePageState(page, state);
+			} catch (RuntimeException e) {
+				Activator.logError("Can't restore the state of a file view page", e);
+			}
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private IPersistentFileViewType<? super Composite> getPersistentType() {
+		return (IPersistentFileViewType<? super Composite>)getType();
+	}
+
 	private String getSettingsKey(String prefix){
 		return prefix+getType().getClass().getSimpleName();
 	}
@@ -219,9 +354,13 @@ public class FileView extends ViewPart implements IShowInTarget{
 	@Override
 	public void dispose() {
 		saveSettings();
-		for (Composite page : pages.values()) {
-			if (page != null) {
-				getType().pageClosed(page);
+		if (pageLoadJob != null) {
+			pageLoadJob.cancel();
+		}
+		FileViewRegistry.viewClosed(this);
+		for (Map.Entry<IFile, Composite> entry : pages.entrySet()) {
+			if (entry.getValue() != null && !(entry.getValue() instanceof LoadingPage)) {
+				getType().pageClosed(entry.getValue());
 			}
 		}
 		super.dispose();
@@ -236,6 +375,13 @@ public class FileView extends ViewPart implements IShowInTarget{
 		return extensions;
 	}
 
+	/**
+	 * Checks whether files with the given extension are shown by this view.
+	 */
+	public boolean isBound(String extension) {
+		return extensionSet.contains(extension);
+	}
+
 	public void hide() {
 		if (!pageBook.isDisposed()) {
 			pageBook.setVisible(false);
@@ -247,12 +393,20 @@ public class FileView extends ViewPart implements IShowInTarget{
 	public void show(IFile file) {
 		if (pageBook!=null && !pageBook.isDisposed()) {
 			pageBook.setVisible(true);
+			if (pageLoadJob != null && !file.equals(pageLoadFile)) {
+				cancelPageLoad();
+			}
 			setFile(file);
 			setTitleToolTip(file.getFullPath().toString());
 			Composite page = getPage();
 			if ((page == null) || page.isDisposed()) {
 				load(file);
+			} else {
+				// Most recently shown last
+				pages.put(file, pages.remove(file));
 			}
+			unloadedFiles.remove(file);
+			evictPages();
 			refresh();
 			// Fill toolbar for the first time
 			if (!toolbarFilled) {
@@ -274,22 +428,184 @@ public class FileView extends ViewPart implements IShowInTarget{
 	private void load(IFile file) {
 		Composite page = null;
 		if (file.exists()) {
+			if (getType() instanceof IAsyncFileViewType) {
+				loadInBackground(file);
+				return;
+			}
 			try {
 				page = getType().createPage(pageBook, file);
 			} catch (Exception e) {
 				Activator.logError("Can't create file view page", e);
 			}
-			pages.put(file, page);
+			putPage(file, page);
+			restorePageState(file, page);
 		} else {
 			showErrorPage();
 		}
 	}
 
+	/**
+	 * Closes the least recently shown pages while there are more than the
+	 * maximum set in the preferences. Pages which are being loaded and the
+	 * current page are kept.
+	 */
+	private void evictPages() {
+		int maxPages = Math.max(1, Activator.getInstance().getPreferenceStore().getInt(FileViewPreferenceInitializer.MAX_PAGES));
+		int count = 0;
+		for (Composite page : pages.values()) {
+			if (page != null) {
+				count++;
+			}
+		}
+		for (Iterator<Map.Entry<IFile, Composite>> iterator = pages.entrySet().iterator(); count > maxPages && iterator.hasNext();) {
+			Map.Entry<IFile, Composite> entry = iterator.next();
+			IFile file = entry.getKey();
+			Composite page = entry.getValue();
+			if (page != null && !(page instanceof LoadingPage) && !file.equals(getFile())) {
+				IDialogSettings state = savePageState(page);
+				if (state != null) {
+					pageStates.put(file, state);
+				}
+				iterator.remove();
+				FileViewRegistry.fileClosed(this, file);
+				getType().pageClosed(page);
+				unloadedFiles.add(file);
+				count--;
+			}
+		}
+	}
+
+	private void putPage(IFile file, Composite page) {
+		if (!pages.containsKey(file)) {
+			FileViewRegistry.fileOpened(this, file);
+		}
+		pages.put(file, page);
+	}
+
+	private Composite removePage(IFile file) {
+		if (pages.containsKey(file)) {
+			FileViewRegistry.fileClosed(this, file);
+		}
+		return pages.remove(file);
+	}
+
+	@SuppressWarnings("unchecked")
+	private IAsyncFileViewType<? super Composite, Object> getAsyncType() {
+		return (IAsyncFileViewType<? super Composite, Object>)getType();
+	}
+
+	/**
+	 * Shows a placeholder for the given file and loads it in a background
+	 * job. The page is created when loading is finished.
+	 */
+	private void loadInBackground(final IFile file) {
+		final LoadingPage loadingPage = new LoadingPage(pageBook, file);
+		putPage(file, loadingPage);
+		final IAsyncFileViewType<? super Composite, Object> asyncType = getAsyncType();
+		pageLoadFile = file;
+		pageLoadJob = new Job(format("Loading {0}", file.getName())) {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				final Object data;
+				try {
+					data = asyncType.loadFile(file, monitor);
+				} catch (final Exception e) {
+					Display.getDefault().asyncExec(new Runnable() {
+
+						@Override
+						public void run() {
+							loadFailed(file, loadingPage, e);
+						}
+
+					});
+					return Status.OK_STATUS;
+				}
+				if (monitor.isCanceled()) {
+					asyncType.discard(data);
+					return Status.CANCEL_STATUS;
+				}
+				Display.getDefault().asyncExec(new Runnable() {
+
+					@Override
+					public void run() {
+						loaded(file, loadingPage, data);
+					}
+
+				});
+				return Status.OK_STATUS;
+			}
+
+		};
+		pageLoadJob.schedule();
+	}
+
+	private void loaded(IFile file, LoadingPage loadingPage, Object data) {
+		if (pageBook == null || pageBook.isDisposed() || pages.get(file) != loadingPage) {
+			// Closed or cancelled in the meantime
+			getAsyncType().discard(data);
+			return;
+		}
+		finishPageLoad(file);
+		Composite page = null;
+		try {
+			page = getAsyncType().createPage(pageBook, file, data);
+		} catch (Exception e) {
+			Activator.logError("Can't create file view page", e);
+		}
+		pages.put(file, page);
+		restorePageState(file, page);
+		loadingPage.dispose();
+		if (file.equals(getFile())) {
+			refresh();
+		}
+	}
+
+	private void loadFailed(IFile file, LoadingPage loadingPage, Exception exception) {
+		if (pageBook == null || pageBook.isDisposed() || pages.get(file) != loadingPage) {
+			return;
+		}
+		finishPageLoad(file);
+		Activator.logError("Can't create file view page", exception);
+		pages.put(file, null);
+		loadingPage.dispose();
+		if (file.equals(getFile())) {
+			refresh();
+		}
+	}
+
+	private void finishPageLoad(IFile file) {
+		if (file.equals(pageLoadFile)) {
+			pageLoadJob = null;
+			pageLoadFile = null;
+		}
+	}
+
+	/**
+	 * Cancels loading a file which is no longer to be shown and removes its
+	 * placeholder, so that it is loaded again when it is shown next time.
+	 */
+	private void cancelPageLoad() {
+		pageLoadJob.cancel();
+		Composite page = pages.get(pageLoadFile);
+		if (page instanceof LoadingPage) {
+			removePage(pageLoadFile);
+			page.dispose();
+		}
+		pageLoadJob = null;
+		pageLoadFile = null;
+	}
+
 	private void refresh() {
 		if (pageBook != null) {
 			Composite page = getPage();
 			if (page == null) {
 				showErrorPage();
+			} else if (page instanceof LoadingPage) {
+				pageBook.showPage(page);
+				for (IContributionItem contributionItem : toolbarContributions) {
+					contributionItem.setVisible(false);
+				}
 			} else {
 				pageBook.showPage(page);
 				getType().pageShown(page);
@@ -311,7 +627,7 @@ public class FileView extends ViewPart implements IShowInTarget{
 
 	private void refreshToolbarContributions() {
 		for (IContributionItem toolbarContribution : toolbarContributions) {
-			boolean visible = (getFile() != null) && (getPage() != null);
+			boolean visible = (getFile() != null) && (getPage() != null) && !(getPage() instanceof LoadingPage);
 			if (visible) {
 				toolbarContribution.update();
 			}
@@ -321,22 +637,34 @@ public class FileView extends ViewPart implements IShowInTarget{
 	}
 
 	public void reload(IFile file) {
-		Composite oldPage = pages.get(file);
-		if (oldPage != null) {
-			if (file.exists()) {
-				try {
-					getType().reload(oldPage);
-				} catch (Exception e) {
-					Activator.logError("Error while reloading file", e);
+		reload(Collections.singleton(file));
+	}
+
+	/**
+	 * Reloads the pages of the given files and refreshes the view once.
+	 */
+	public void reload(Collection<IFile> files) {
+		boolean currentFileReloaded = false;
+		for (IFile file : files) {
+			Composite oldPage = pages.get(file);
+			// A page being loaded reads the file when its job runs
+			if (oldPage != null && !(oldPage instanceof LoadingPage)) {
+				if (file.exists()) {
+					try {
+						getType().reload(oldPage);
+					} catch (Exception e) {
+						Activator.logError("Error while reloading file", e);
+						pages.put(file, null);
+					}
+				} else {
 					pages.put(file, null);
 				}
-			} else {
-				pages.put(file, null);
-			}
-			if (file.equals(getFile())) {
-				refresh();
+				currentFileReloaded |= file.equals(getFile());
 			}
 		}
+		if (currentFileReloaded) {
+			refresh();
+		}
 	}
 
 	private Composite getPage() {
@@ -382,8 +710,8 @@ public class FileView extends ViewPart implements IShowInTarget{
 				}
 				if (selectedFile != null) {
 					IFile fileToView = getType().getFile(selectedFile);
-					if (getExtensions().contains(fileToView.getFileExtension())) {
-						show(fileToView);
+					if (isBound(fileToView.getFileExtension())) {
+						showSelected(fileToView);
 					}
 				}
 			}
@@ -391,6 +719,42 @@ public class FileView extends ViewPart implements IShowInTarget{
 
 	};
 
+	/**
+	 * The file selected last, shown when the selection stays on it.
+	 */
+	private IFile selectedFile;
+
+	private final Runnable selectedFileShower = new Runnable() {
+
+		@Override
+		public void run() {
+			IFile file = selectedFile;
+			selectedFile = null;
+			if (file != null && pageBook != null && !pageBook.isDisposed()) {
+				show(file);
+			}
+		}
+
+	};
+
+	/**
+	 * Shows the given selected file. Files which are already open are shown
+	 * immediately, others only when no other file is selected within a short
+	 * delay, so that moving the selection across many files loads only the
+	 * one the selection stops on.
+	 */
+	private void showSelected(IFile file) {
+		if (isLoaded(pages.get(file))) {
+			selectedFile = null;
+			Display.getCurrent().timerExec(-1, selectedFileShower);
+			show(file);
+		} else {
+			selectedFile = file;
+			// Restarts the delay if it is already running
+			Display.getCurrent().timerExec(SELECTION_DELAY_MILLISECONDS, selectedFileShower);
+		}
+	}
+
 	private final IAction toggleLinkedAction = new Action("Link with Editor and Selection", IAction.AS_CHECK_BOX) {
 
 		{
@@ -420,6 +784,7 @@ public class FileView extends ViewPart implements IShowInTarget{
 
 		private void closeAll(boolean includeCurrent){
 			List<IFile> files = new ArrayList<IFile>(pages.keySet());
+			files.addAll(unloadedFiles);
 			for (IFile iFile : files) {
 				if(includeCurrent || !iFile.equals(getFile())){
 					close(iFile);
@@ -434,9 +799,19 @@ public class FileView extends ViewPart implements IShowInTarget{
 		};
 
 		private void close(IFile file){
-			Composite composite = pages.remove(file);
+			unloadedFiles.remove(file);
+			pageStates.remove(file);
+			if (file.equals(pageLoadFile)) {
+				pageLoadJob.cancel();
+				finishPageLoad(file);
+			}
+			Composite composite = removePage(file);
 			if(composite!=null){
-				getType().pageClosed(composite);
+				if (composite instanceof LoadingPage) {
+					composite.dispose();
+				} else {
+					getType().pageClosed(composite);
+				}
 				if(file.equals(getFile())){
 					fileNameDisplay.setText("");//$NON-NLS-1$
 					setFile(null);
@@ -458,6 +833,7 @@ public class FileView extends ViewPart implements IShowInTarget{
 		List<IAction> getActions() {
 			List<IAction> result=new ArrayList<IAction>();
 			List<IFile> files=new ArrayList<IFile>(pages.keySet());
+			files.addAll(unloadedFiles);
 			Collections.sort(files, fileNameComparator);
 			for(IFile file: files){
 				final IFile theFile=file;
@@ -0,0 +1,23 @@
+package org.eclipse.ui.views.file;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+
+/**
+ * Sets the defaults of the file view preferences. Besides the preference
+ * page, they can be set in a <code>plugin_customization.ini</code> file, e.g.
+ * <code>org.eclipse.ui.views.file/maxPages=16</code>.
+ */
+public class FileViewPreferenceInitializer extends AbstractPreferenceInitializer {
+
+	/**
+	 * The maximum number of pages a file view keeps open. The default can be
+	 * set by the system property <code>fileViewMaxPages</code>.
+	 */
+	public static final String MAX_PAGES = "maxPages"; //$NON-NLS-1$
+
+	@Override
+	public void initializeDefaultPreferences() {
+		Activator.getInstance().getPreferenceStore().setDefault(MAX_PAGES, Math.max(1, Integer.getInteger("fileViewMaxPages", 8))); //$NON-NLS-1$
+	}
+
+}
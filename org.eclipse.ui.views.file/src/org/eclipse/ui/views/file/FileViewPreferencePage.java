@@ -0,0 +1,32 @@
+package org.eclipse.ui.views.file;
+
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+/**
+ * Edits the settings shared by all file views.
+ */
+public class FileViewPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+
+	private static final int MAX_PAGES_LIMIT = 100;
+
+	public FileViewPreferencePage() {
+		super(GRID);
+		setPreferenceStore(Activator.getInstance().getPreferenceStore());
+		setDescription("File views keep the most recently shown files open, so that switching back to them is fast. Further files are closed and opened again when they are shown.");
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		IntegerFieldEditor maxPages = new IntegerFieldEditor(FileViewPreferenceInitializer.MAX_PAGES, "&Maximum number of open files per view:", getFieldEditorParent());
+		maxPages.setValidRange(1, MAX_PAGES_LIMIT);
+		addField(maxPages);
+	}
+
+	@Override
+	public void init(IWorkbench workbench) {
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.eclipse.ui.views.file;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * Maps open files to the file views showing them, so that changed files are
+ * routed to the right views without asking every view. The views register
+ * their open files. The methods are thread-safe, so the files can be looked
+ * up outside the UI thread.
+ */
+public class FileViewRegistry {
+
+	private static final Map<IFile, Set<FileView>> VIEWS_BY_FILE = new HashMap<IFile, Set<FileView>>();
+
+	private FileViewRegistry() {
+	}
+
+	/**
+	 * Called by a file view when it is disposed.
+	 */
+	static synchronized void viewClosed(FileView view) {
+		for (Set<FileView> views : VIEWS_BY_FILE.values()) {
+			views.remove(view);
+		}
+		VIEWS_BY_FILE.values().removeAll(Collections.singleton(Collections.<FileView>emptySet()));
+	}
+
+	/**
+	 * Called by a file view when it opens a page for the given file.
+	 */
+	static synchronized void fileOpened(FileView view, IFile file) {
+		Set<FileView> views = VIEWS_BY_FILE.get(file);
+		if (views == null) {
+			views = new LinkedHashSet<FileView>();
+			VIEWS_BY_FILE.put(file, views);
+		}
+		views.add(view);
+	}
+
+	/**
+	 * Called by a file view when it closes the page of the given file.
+	 */
+	static synchronized void fileClosed(FileView view, IFile file) {
+		Set<FileView> views = VIEWS_BY_FILE.get(file);
+		if (views != null) {
+			views.remove(view);
+			if (views.isEmpty()) {
+				VIEWS_BY_FILE.remove(file);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a page of the given file is open in any file view.
+	 */
+	public static synchronized boolean isViewed(IFile file) {
+		return VIEWS_BY_FILE.containsKey(file);
+	}
+
+	/**
+	 * Returns the file views with a page of the given file.
+	 */
+	public static synchronized List<FileView> getViews(IFile file) {
+		Set<FileView> views = VIEWS_BY_FILE.get(file);
+		return views == null ? Collections.<FileView>emptyList() : new ArrayList<FileView>(views);
+	}
+
+}
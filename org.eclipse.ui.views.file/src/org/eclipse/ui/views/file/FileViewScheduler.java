@@ -0,0 +1,307 @@
+package org.eclipse.ui.views.file;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Runs the background work of a file view type, so that its pages don't have
+ * to manage jobs, cancellation and UI updates themselves. Each view type uses
+ * a scheduler of its own, which runs a limited number of tasks at a time, so
+ * that one busy view type doesn't occupy all processors. Tasks needed for the
+ * shown page run before background tasks such as prefetching.
+ * <p>
+ * Every task belongs to a {@link Generation}, e.g. of the file loaded by a
+ * page. When the generation advances, the task is cancelled and its result is
+ * dropped. The results of all schedulers are applied in the UI thread in
+ * batches, with a single runnable for all results completed in the meantime.
+ */
+public class FileViewScheduler {
+
+	/**
+	 * The maximum number of tasks run at a time by a scheduler, by default half
+	 * of the available processors.
+	 */
+	private static final int DEFAULT_MAX_CONCURRENCY = Math.max(1, Integer.getInteger("fileViewMaxThreads", Runtime.getRuntime().availableProcessors() / 2)); //$NON-NLS-1$
+
+	public enum Lane {
+
+		/**
+		 * Work the shown page is waiting for.
+		 */
+		FOREGROUND,
+
+		/**
+		 * Work which can wait, such as prefetching.
+		 */
+		BACKGROUND
+
+	}
+
+	/**
+	 * Computes a result outside the UI thread and applies it in the UI thread.
+	 */
+	public abstract static class Task<R> {
+
+		/**
+		 * Computes the result. The monitor is cancelled when the generation of
+		 * the task advances. Returns <code>null</code> if there is nothing to
+		 * apply.
+		 */
+		public abstract R run(IProgressMonitor monitor) throws Exception;
+
+		/**
+		 * Applies the result in the UI thread.
+		 */
+		public abstract void apply(R result);
+
+		/**
+		 * Called in the UI thread if computing the result failed. Logs the
+		 * exception by default.
+		 */
+		public void failed(Exception exception) {
+			Activator.logError("Background task of a file view failed", exception);
+		}
+
+	}
+
+	/**
+	 * Identifies the current state of a page, e.g. the file it shows. Advancing
+	 * the generation discards all tasks scheduled before.
+	 */
+	public static class Generation {
+
+		private final AtomicInteger value = new AtomicInteger();
+
+		/**
+		 * Cancels the tasks of the current generation and drops their results.
+		 */
+		public void advance() {
+			value.incrementAndGet();
+		}
+
+		int get() {
+			return value.get();
+		}
+
+	}
+
+	private final class ScheduledTask<R> {
+
+		private final Task<R> task;
+
+		private final Generation generation;
+
+		private final int value;
+
+		ScheduledTask(Task<R> task, Generation generation) {
+			this.task = task;
+			this.generation = generation;
+			value = generation.get();
+		}
+
+		boolean isCurrent() {
+			return generation.get() == value;
+		}
+
+		void run(final IProgressMonitor monitor) {
+			if (!isCurrent()) {
+				return;
+			}
+			IProgressMonitor taskMonitor = new NullProgressMonitor() {
+
+				@Override
+				public boolean isCanceled() {
+					return monitor.isCanceled() || !isCurrent();
+				}
+
+			};
+			try {
+				final R result = task.run(taskMonitor);
+				if (result != null) {
+					post(new Runnable() {
+
+						@Override
+						public void run() {
+							if (isCurrent()) {
+								task.apply(result);
+							}
+						}
+
+					});
+				}
+			} catch (final Exception e) {
+				post(new Runnable() {
+
+					@Override
+					public void run() {
+						if (isCurrent()) {
+							task.failed(e);
+						}
+					}
+
+				});
+			}
+		}
+
+	}
+
+	/**
+	 * Runs the queued tasks of its lane, with the job priority of the lane,
+	 * until there are none left.
+	 */
+	private final class Worker extends Job {
+
+		private final Lane lane;
+
+		Worker(Lane lane) {
+			super(name);
+			this.lane = lane;
+			setSystem(true);
+			setPriority(lane == Lane.FOREGROUND ? INTERACTIVE : DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			for (ScheduledTask<?> scheduledTask = next(lane); scheduledTask != null; scheduledTask = next(lane)) {
+				scheduledTask.run(monitor);
+			}
+			return Status.OK_STATUS;
+		}
+
+	}
+
+	/**
+	 * The results waiting to be applied in the UI thread.
+	 */
+	private static final List<Runnable> PENDING_UPDATES = new ArrayList<Runnable>();
+
+	private static final Runnable UPDATER = new Runnable() {
+
+		@Override
+		public void run() {
+			List<Runnable> updates;
+			synchronized (PENDING_UPDATES) {
+				updates = new ArrayList<Runnable>(PENDING_UPDATES);
+				PENDING_UPDATES.clear();
+			}
+			for (Runnable update : updates) {
+				try {
+					update.run();
+				} catch (RuntimeException e) {
+					Activator.logError("Can't apply the result of a background task", e);
+				}
+			}
+		}
+
+	};
+
+	private final String name;
+
+	private final int maxConcurrency;
+
+	private final Queue<ScheduledTask<?>> foregroundTasks = new ArrayDeque<ScheduledTask<?>>();
+
+	private final Queue<ScheduledTask<?>> backgroundTasks = new ArrayDeque<ScheduledTask<?>>();
+
+	private int foregroundWorkers;
+
+	private int backgroundWorkers;
+
+	public FileViewScheduler(String name) {
+		this(name, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	public FileViewScheduler(String name, int maxConcurrency) {
+		this.name = name;
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+	}
+
+	/**
+	 * Schedules the given task in the given lane for the current state of the
+	 * given generation.
+	 */
+	public <R> void schedule(Lane lane, Generation generation, Task<R> task) {
+		ScheduledTask<R> scheduledTask = new ScheduledTask<R>(task, generation);
+		synchronized (this) {
+			(lane == Lane.FOREGROUND ? foregroundTasks : backgroundTasks).add(scheduledTask);
+			if (foregroundWorkers + backgroundWorkers < maxConcurrency) {
+				startWorker(lane);
+			}
+		}
+	}
+
+	private void startWorker(Lane lane) {
+		if (lane == Lane.FOREGROUND) {
+			foregroundWorkers++;
+		} else {
+			backgroundWorkers++;
+		}
+		new Worker(lane).schedule();
+	}
+
+	/**
+	 * Returns the next task of the given lane, skipping outdated ones. Returns
+	 * <code>null</code> and stops the calling worker if there is no task left.
+	 * Background workers also stop while foreground tasks are waiting, so that
+	 * these run first even if all workers are busy.
+	 */
+	private synchronized ScheduledTask<?> next(Lane lane) {
+		while (true) {
+			ScheduledTask<?> scheduledTask = null;
+			if (lane == Lane.FOREGROUND) {
+				scheduledTask = foregroundTasks.poll();
+			} else if (foregroundTasks.isEmpty()) {
+				scheduledTask = backgroundTasks.poll();
+			}
+			if (scheduledTask == null) {
+				stopWorker(lane);
+				return null;
+			}
+			if (scheduledTask.isCurrent()) {
+				return scheduledTask;
+			}
+		}
+	}
+
+	/**
+	 * Stops a worker of the given lane and starts workers for the waiting
+	 * tasks, foreground tasks first.
+	 */
+	private void stopWorker(Lane lane) {
+		if (lane == Lane.FOREGROUND) {
+			foregroundWorkers--;
+		} else {
+			backgroundWorkers--;
+		}
+		while (foregroundWorkers + backgroundWorkers < maxConcurrency && foregroundWorkers < foregroundTasks.size()) {
+			startWorker(Lane.FOREGROUND);
+		}
+		while (foregroundWorkers + backgroundWorkers < maxConcurrency && foregroundTasks.isEmpty() && backgroundWorkers < backgroundTasks.size()) {
+			startWorker(Lane.BACKGROUND);
+		}
+	}
+
+	private static void post(Runnable update) {
+		synchronized (PENDING_UPDATES) {
+			PENDING_UPDATES.add(update);
+			if (PENDING_UPDATES.size() > 1) {
+				return; // The updater is already posted
+			}
+		}
+		Display display = Display.getDefault();
+		if (!display.isDisposed()) {
+			display.asyncExec(UPDATER);
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+package org.eclipse.ui.views.file;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.ui.part.PageBook;
+
+/**
+ * A file view type whose files are loaded in the background. The file view
+ * shows a placeholder while the file is loaded and creates the page when
+ * loading is finished. Loading is cancelled if another file is shown first.
+ * <p>
+ * The page is created by {@link #createPage(PageBook, IFile, Object)}; the
+ * synchronous {@link #createPage(PageBook, IFile)} is still used by clients
+ * which need a page immediately.
+ *
+ * @param <D> the type of the data loaded for a page
+ */
+public interface IAsyncFileViewType<P extends Composite, D> extends IFileViewType<P> {
+
+	/**
+	 * Loads the data of the page of the given file. Called in a background
+	 * job, so it must not access any widgets. Should return as soon as
+	 * possible if the monitor is cancelled.
+	 */
+	D loadFile(IFile file, IProgressMonitor monitor) throws Exception;
+
+	/**
+	 * Creates the page of the given file from the loaded data. Releases the
+	 * data if the page can't be created.
+	 */
+	P createPage(PageBook pageBook, IFile file, D data) throws Exception;
+
+	/**
+	 * Releases the data loaded for a page which is not created after all.
+	 */
+	void discard(D data);
+
+}
@@ -0,0 +1,24 @@
+package org.eclipse.ui.views.file;
+
+import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * A file view type whose pages have a state, e.g. the current position, which
+ * is restored when a page is created again for the same file, after the page
+ * was closed to save resources or when the workbench is restarted.
+ */
+public interface IPersistentFileViewType<P extends Composite> extends IFileViewType<P> {
+
+	/**
+	 * Stores the state of the given page in the given settings.
+	 */
+	void savePageState(P page, IDialogSettings settings);
+
+	/**
+	 * Restores the state of the given page, which was just created, from the
+	 * given settings.
+	 */
+	void restorePageState(P page, IDialogSettings settings);
+
+}
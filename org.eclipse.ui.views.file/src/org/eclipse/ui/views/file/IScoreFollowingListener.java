@@ -0,0 +1,18 @@
+package org.eclipse.ui.views.file;
+
+import java.net.URI;
+
+/**
+ * Clients which follow the playback of a score, e.g. by highlighting the
+ * played notes, implement this interface and register it with
+ * {@link ScoreFollowing}.
+ */
+public interface IScoreFollowingListener {
+
+	/**
+	 * Called in the UI thread when playback reaches a note defined at the
+	 * given location of a source file. The line number is zero-based.
+	 */
+	void sourcePositionPlayed(URI file, int lineNumber, int columnNumber);
+
+}
@@ -0,0 +1,36 @@
+package org.eclipse.ui.views.file;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Connects file view types which play scores to the ones which display them,
+ * without making them depend on each other.
+ */
+public class ScoreFollowing {
+
+	private static final List<IScoreFollowingListener> LISTENERS = new CopyOnWriteArrayList<IScoreFollowingListener>();
+
+	private ScoreFollowing() {
+	}
+
+	public static void addListener(IScoreFollowingListener listener) {
+		LISTENERS.add(listener);
+	}
+
+	public static void removeListener(IScoreFollowingListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	/**
+	 * Notifies the listeners that playback has reached a note defined at the
+	 * given location. Must be called in the UI thread.
+	 */
+	public static void firePositionPlayed(URI file, int lineNumber, int columnNumber) {
+		for (IScoreFollowingListener listener : LISTENERS) {
+			listener.sourcePositionPlayed(file, lineNumber, columnNumber);
+		}
+	}
+
+}
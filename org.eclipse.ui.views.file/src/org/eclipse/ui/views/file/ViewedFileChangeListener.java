@@ -1,5 +1,18 @@
 package org.eclipse.ui.views.file;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
@@ -7,58 +20,172 @@ import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.ui.IViewPart;
-import org.eclipse.ui.IViewReference;
-import org.eclipse.ui.IWorkbenchPage;
-import org.eclipse.util.UiUtils;
 
 /**
  * Refreshes the file views that display files that were changed in the
- * workspace.
+ * workspace. Only the files open in a file view are considered. Their
+ * changes are collected in the resource change thread and a single watcher
+ * thread dispatches them once the size and the modification time of a file
+ * have been stable for a while. So files written in several chunks, like the
+ * PDF files of LilyPond, are reloaded only when they are complete, and a
+ * build changing many files results in batched UI updates.
+ * <p>
+ * The interval in milliseconds can be set by the system property
+ * <code>fileViewStableInterval</code>.
  */
 public class ViewedFileChangeListener implements IResourceChangeListener {
 
-	private static final IResourceDeltaVisitor VISITOR = new IResourceDeltaVisitor() {
+	private static final long STABLE_MILLISECONDS = Math.max(0, Long.getLong("fileViewStableInterval", 500)); //$NON-NLS-1$
+
+	private static final long POLL_MILLISECONDS = Math.max(10, STABLE_MILLISECONDS / 5);
+
+	/**
+	 * The last observed state of a changed file.
+	 */
+	private static class FileState {
+
+		private long length = -1;
+
+		private long lastModified = -1;
+
+		private long stableSince;
+
+	}
+
+	/**
+	 * The changed files waiting to become stable.
+	 */
+	private final Map<IFile, FileState> changedFiles = new LinkedHashMap<IFile, FileState>();
+
+	private final ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable, "File view change watcher"); //$NON-NLS-1$
+			result.setDaemon(true);
+			return result;
+		}
+
+	});
+
+	/**
+	 * The periodic check of the changed files, <code>null</code> while there
+	 * are none. Guarded by {@link #changedFiles}.
+	 */
+	private ScheduledFuture<?> check;
+
+	private final IResourceDeltaVisitor visitor = new IResourceDeltaVisitor() {
 
 		@Override
 		public boolean visit(IResourceDelta delta) throws CoreException {
-			final IResource resource = delta.getResource();
-			final String extension = resource.getFileExtension();
-			if ((resource instanceof IFile) && (extension != null)) {
+			IResource resource = delta.getResource();
+			if ((resource instanceof IFile) && (resource.getFileExtension() != null) && FileViewRegistry.isViewed((IFile)resource)) {
+				synchronized (changedFiles) {
+					// Another change restarts the interval
+					changedFiles.put((IFile)resource, new FileState());
+				}
+			}
+			return true;
+		}
+
+	};
+
+	private final Runnable checker = new Runnable() {
+
+		@Override
+		public void run() {
+			long now = System.currentTimeMillis();
+			final List<IFile> stableFiles = new ArrayList<IFile>();
+			synchronized (changedFiles) {
+				for (Iterator<Map.Entry<IFile, FileState>> iterator = changedFiles.entrySet().iterator(); iterator.hasNext();) {
+					Map.Entry<IFile, FileState> entry = iterator.next();
+					if (isStable(entry.getKey(), entry.getValue(), now)) {
+						stableFiles.add(entry.getKey());
+						iterator.remove();
+					}
+				}
+				if (changedFiles.isEmpty() && check != null) {
+					check.cancel(false);
+					check = null;
+				}
+			}
+			if (!stableFiles.isEmpty()) {
 				Display.getDefault().asyncExec(new Runnable() { // The view can be accessed only in UI thread
 
 					@Override
 					public void run() {
-						IWorkbenchPage workbenchPage = UiUtils.getWorkbenchPage();
-						if (workbenchPage != null) {
-							for (IViewReference viewReference : workbenchPage.getViewReferences()) {
-								IViewPart view = viewReference.getView(false);
-								if (view instanceof FileView) {
-									FileView fileView = (FileView)view;
-									IFile file = (IFile)resource;
-									if (fileView.getExtensions().contains(file.getFileExtension())) {
-										fileView.reload(file);
-									}
-								}
-							}
-						}
+						reload(stableFiles);
 					}
 
 				});
 			}
-			return true;
 		}
 
 	};
 
+	/**
+	 * Updates the state of the given file and checks whether it has been
+	 * stable for the configured interval.
+	 */
+	private static boolean isStable(IFile file, FileState state, long now) {
+		IPath location = file.getLocation();
+		if (location == null) {
+			return true;
+		}
+		File localFile = location.toFile();
+		long length = localFile.length();
+		long lastModified = localFile.lastModified();
+		if (length != state.length || lastModified != state.lastModified) {
+			state.length = length;
+			state.lastModified = lastModified;
+			state.stableSince = now;
+			return false;
+		}
+		return now - state.stableSince >= STABLE_MILLISECONDS;
+	}
+
+	/**
+	 * Reloads the given files in the views showing them, with a single call
+	 * per view.
+	 */
+	private static void reload(Collection<IFile> files) {
+		Map<FileView, List<IFile>> filesByView = new LinkedHashMap<FileView, List<IFile>>();
+		for (IFile file : files) {
+			for (FileView fileView : FileViewRegistry.getViews(file)) {
+				List<IFile> viewedFiles = filesByView.get(fileView);
+				if (viewedFiles == null) {
+					viewedFiles = new ArrayList<IFile>();
+					filesByView.put(fileView, viewedFiles);
+				}
+				viewedFiles.add(file);
+			}
+		}
+		for (Map.Entry<FileView, List<IFile>> entry : filesByView.entrySet()) {
+			entry.getKey().reload(entry.getValue());
+		}
+	}
+
 	@Override
 	public void resourceChanged(IResourceChangeEvent event) {
 		try {
-			event.getDelta().accept(VISITOR);
+			event.getDelta().accept(visitor);
 		} catch (CoreException e) {
 			Activator.logError("Couldn't refresh the file view, try to reopen it", e);
 		}
+		synchronized (changedFiles) {
+			if (!changedFiles.isEmpty() && check == null) {
+				check = watcher.scheduleWithFixedDelay(checker, POLL_MILLISECONDS, POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Stops the watcher thread.
+	 */
+	void dispose() {
+		watcher.shutdownNow();
 	}
 
 }
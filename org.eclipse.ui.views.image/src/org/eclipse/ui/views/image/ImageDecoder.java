@@ -0,0 +1,281 @@
+package org.eclipse.ui.views.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.text.MessageFormat;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.util.ImageUtils;
+
+/**
+ * Decodes parts of a raster image file at reduced resolutions, so that large
+ * images can be shown without decoding them at full size. The image is
+ * subsampled by a power of two and decoded in horizontal strips of
+ * {@link #STRIP_HEIGHT} subsampled rows. The decoder is thread-safe, every
+ * call reads the file with an image reader of its own.
+ * <p>
+ * Formats without easy random access, such as PNG and JPEG, can't decode a
+ * strip without decoding all rows above it. Their strips are therefore cut
+ * from a single pass over the whole image, which is kept until memory runs
+ * low, and their subsampling is limited so that such a pass has at most
+ * {@link #MAX_PASS_PIXELS} pixels.
+ */
+class ImageDecoder {
+
+	static final int STRIP_HEIGHT = 256;
+
+	/**
+	 * The maximum width and height of the overview of the whole image.
+	 */
+	static final int OVERVIEW_SIZE = 1024;
+
+	/**
+	 * The maximum number of pixels decoded in one pass over an image without
+	 * easy random access.
+	 */
+	static final int MAX_PASS_PIXELS = 16 << 20;
+
+	private final File file;
+
+	private final int width;
+
+	private final int height;
+
+	/**
+	 * Whether rows can only be decoded after all rows above them.
+	 */
+	private final boolean sequential;
+
+	/**
+	 * The whole image decoded most recently for strips of a sequential format.
+	 */
+	private SoftReference<BufferedImage> pass;
+
+	private int passSubsampling;
+
+	private ImageDecoder(File file, int width, int height, boolean sequential) {
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		this.sequential = sequential;
+	}
+
+	/**
+	 * Reads the dimensions of the given image file without decoding it.
+	 */
+	static ImageDecoder open(File file) throws IOException {
+		ImageInputStream input = openInput(file);
+		try {
+			ImageReader reader = getReader(file, input);
+			try {
+				boolean sequential = !reader.isRandomAccessEasy(0) && !reader.isImageTiled(0);
+				return new ImageDecoder(file, reader.getWidth(0), reader.getHeight(0), sequential);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the largest power of two by which the image can be subsampled
+	 * without losing detail at the given zoom factor.
+	 */
+	static int getSubsampling(float zoom) {
+		int subsampling = 1;
+		while (subsampling * 2 * zoom <= 1) {
+			subsampling *= 2;
+		}
+		return subsampling;
+	}
+
+	/**
+	 * Returns the subsampling of the overview, which fits in
+	 * {@link #OVERVIEW_SIZE} pixels.
+	 */
+	int getOverviewSubsampling() {
+		int subsampling = 1;
+		while (width / subsampling > OVERVIEW_SIZE || height / subsampling > OVERVIEW_SIZE) {
+			subsampling *= 2;
+		}
+		return subsampling;
+	}
+
+	/**
+	 * Returns the smallest subsampling at which strips are decoded, which
+	 * limits the size of a pass over an image without easy random access.
+	 */
+	int getMinSubsampling() {
+		int subsampling = 1;
+		while (sequential && (long)getRowCount(subsampling) * ((width + subsampling - 1) / subsampling) > MAX_PASS_PIXELS) {
+			subsampling *= 2;
+		}
+		return subsampling;
+	}
+
+	private int getRowCount(int subsampling) {
+		return (height + subsampling - 1) / subsampling;
+	}
+
+	int getStripCount(int subsampling) {
+		return (getRowCount(subsampling) + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+	}
+
+	/**
+	 * Decodes the whole image with the given subsampling. Returns
+	 * <code>null</code> if the monitor is cancelled.
+	 */
+	ImageData decode(int subsampling, IProgressMonitor monitor) throws IOException {
+		return decode(new Rectangle(0, 0, width, height), subsampling, monitor);
+	}
+
+	/**
+	 * Decodes the strip with the given index and subsampling, which must not be
+	 * smaller than the {@link #getMinSubsampling() minimum}. Returns
+	 * <code>null</code> if the monitor is cancelled.
+	 */
+	ImageData decodeStrip(int subsampling, int index, IProgressMonitor monitor) throws IOException {
+		if (!sequential) {
+			int top = index * STRIP_HEIGHT * subsampling;
+			return decode(new Rectangle(0, top, width, Math.min(STRIP_HEIGHT * subsampling, height - top)), subsampling, monitor);
+		}
+		BufferedImage image = getPass(subsampling, monitor);
+		if (image == null) {
+			return null;
+		}
+		int top = index * STRIP_HEIGHT;
+		return ImageUtils.convertBufferedImageToImageData(image.getSubimage(0, top, image.getWidth(), Math.min(STRIP_HEIGHT, image.getHeight() - top)));
+	}
+
+	/**
+	 * Returns the whole image with the given subsampling, decoding it unless it
+	 * is kept from a previous call. Concurrent calls wait for a single pass.
+	 */
+	private synchronized BufferedImage getPass(int subsampling, IProgressMonitor monitor) throws IOException {
+		BufferedImage image = pass == null || passSubsampling != subsampling ? null : pass.get();
+		if (image == null) {
+			image = read(new Rectangle(0, 0, width, height), subsampling, monitor);
+			if (image == null) {
+				return null;
+			}
+			pass = new SoftReference<BufferedImage>(image);
+			passSubsampling = subsampling;
+		}
+		return image;
+	}
+
+	private ImageData decode(Rectangle region, int subsampling, IProgressMonitor monitor) throws IOException {
+		BufferedImage image = read(region, subsampling, monitor);
+		return image == null ? null : ImageUtils.convertBufferedImageToImageData(image);
+	}
+
+	private BufferedImage read(Rectangle region, int subsampling, IProgressMonitor monitor) throws IOException {
+		ImageInputStream input = openInput(file);
+		try {
+			ImageReader reader = getReader(file, input);
+			try {
+				reader.addIIOReadProgressListener(new CancellationListener(monitor));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(region);
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				BufferedImage image = reader.read(0, param);
+				return monitor.isCanceled() ? null : image;
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	private static ImageInputStream openInput(File file) throws IOException {
+		ImageInputStream input = ImageIO.createImageInputStream(file);
+		if (input == null) {
+			throw new IOException(MessageFormat.format("Can''t read {0}", file));
+		}
+		return input;
+	}
+
+	private static ImageReader getReader(File file, ImageInputStream input) throws IOException {
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) {
+			throw new IOException(MessageFormat.format("Unsupported image format: {0}", file.getName()));
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(input, true, true);
+		return reader;
+	}
+
+	/**
+	 * Aborts reading when the monitor is cancelled.
+	 */
+	private static class CancellationListener implements IIOReadProgressListener {
+
+		private final IProgressMonitor monitor;
+
+		CancellationListener(IProgressMonitor monitor) {
+			this.monitor = monitor;
+		}
+
+		@Override
+		public void imageProgress(ImageReader source, float percentageDone) {
+			if (monitor.isCanceled()) {
+				source.abort();
+			}
+		}
+
+		@Override
+		public void sequenceStarted(ImageReader source, int minIndex) {
+		}
+
+		@Override
+		public void sequenceComplete(ImageReader source) {
+		}
+
+		@Override
+		public void imageStarted(ImageReader source, int imageIndex) {
+		}
+
+		@Override
+		public void imageComplete(ImageReader source) {
+		}
+
+		@Override
+		public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+		}
+
+		@Override
+		public void thumbnailProgress(ImageReader source, float percentageDone) {
+		}
+
+		@Override
+		public void thumbnailComplete(ImageReader source) {
+		}
+
+		@Override
+		public void readAborted(ImageReader source) {
+		}
+
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.eclipse.ui.views.image;
+
+/**
+ * Identifies a horizontal strip of an image decoded at a reduced resolution.
+ */
+class ImageStrip {
+
+	final ImageDecoder decoder;
+
+	final int subsampling;
+
+	final int index;
+
+	ImageStrip(ImageDecoder decoder, int subsampling, int index) {
+		this.decoder = decoder;
+		this.subsampling = subsampling;
+		this.index = index;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof ImageStrip)) {
+			return false;
+		}
+		ImageStrip strip = (ImageStrip)object;
+		return decoder == strip.decoder && subsampling == strip.subsampling && index == strip.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return (System.identityHashCode(decoder) * 31 + subsampling) * 31 + index;
+	}
+
+}
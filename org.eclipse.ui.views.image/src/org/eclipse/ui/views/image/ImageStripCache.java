@@ -0,0 +1,81 @@
+package org.eclipse.ui.views.image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * Keeps the most recently drawn image strips of all image view pages, up to a
+ * total size set by the <code>imageViewCacheSize</code> system property in
+ * megabytes. Must be used in the UI thread only.
+ */
+public class ImageStripCache {
+
+	private static final long MAX_BYTES = Math.max(0, Long.getLong("imageViewCacheSize", 128)) << 20; //$NON-NLS-1$
+
+	/**
+	 * The strips in access order.
+	 */
+	private final Map<ImageStrip, Image> images = new LinkedHashMap<ImageStrip, Image>(16, 0.75f, true);
+
+	private long bytes;
+
+	Image get(ImageStrip strip) {
+		return images.get(strip);
+	}
+
+	/**
+	 * Adds the image of the given strip, disposing the least recently used
+	 * images if the cache gets too large. The most recent image is always kept.
+	 */
+	void put(ImageStrip strip, Image image) {
+		Image previous = images.put(strip, image);
+		if (previous != null) {
+			bytes -= getSize(previous);
+			previous.dispose();
+		}
+		bytes += getSize(image);
+		Iterator<Image> iterator = images.values().iterator();
+		while (bytes > MAX_BYTES && images.size() > 1) {
+			Image eldest = iterator.next();
+			iterator.remove();
+			bytes -= getSize(eldest);
+			eldest.dispose();
+		}
+	}
+
+	/**
+	 * Disposes the images decoded by the given decoder.
+	 */
+	void remove(ImageDecoder decoder) {
+		Iterator<Map.Entry<ImageStrip, Image>> iterator = images.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<ImageStrip, Image> entry = iterator.next();
+			if (entry.getKey().decoder == decoder) {
+				iterator.remove();
+				bytes -= getSize(entry.getValue());
+				entry.getValue().dispose();
+			}
+		}
+	}
+
+	/**
+	 * Disposes all images.
+	 */
+	public void clear() {
+		for (Image image : images.values()) {
+			image.dispose();
+		}
+		images.clear();
+		bytes = 0;
+	}
+
+	private static long getSize(Image image) {
+		Rectangle bounds = image.getBounds();
+		return 4L * bounds.width * bounds.height;
+	}
+
+}
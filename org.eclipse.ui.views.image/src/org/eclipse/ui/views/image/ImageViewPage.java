@@ -0,0 +1,522 @@
+package org.eclipse.ui.views.image;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ControlAdapter;
+import org.eclipse.swt.events.ControlEvent;
+import org.eclipse.swt.events.MouseAdapter;
+import org.eclipse.swt.events.MouseEvent;
+import org.eclipse.swt.events.MouseMoveListener;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.ScrollBar;
+import org.eclipse.ui.views.file.FileViewScheduler;
+import org.eclipse.ui.views.file.FileViewScheduler.Generation;
+import org.eclipse.ui.views.file.FileViewScheduler.Lane;
+import org.eclipse.ui.views.file.FileViewScheduler.Task;
+
+/**
+ * Shows a raster image file. The image is decoded in the background at the
+ * resolution needed for the current zoom: an overview of the whole image
+ * first, then horizontal strips of the visible part, subsampled as much as
+ * possible without losing detail. The strips are kept in a cache of bounded
+ * size shared by all pages, so that huge images can be viewed with bounded
+ * memory.
+ */
+public class ImageViewPage extends Canvas {
+
+	public static final float ZOOM_STEP = 0.25f;
+
+	private static final float MIN_ZOOM = 0.01f;
+
+	private static final float MAX_ZOOM = 16;
+
+	private static final int SCROLL_INCREMENT = 20;
+
+	/**
+	 * Decodes the images of all image view pages.
+	 */
+	private static final FileViewScheduler SCHEDULER = new FileViewScheduler("Image view");
+
+	private final ImageStripCache cache = Activator.getInstance().getStripCache();
+
+	public ImageViewPage(Composite parent, IFile file) {
+		super(parent, SWT.H_SCROLL | SWT.V_SCROLL | SWT.NO_BACKGROUND | SWT.DOUBLE_BUFFERED);
+		addPaintListener(new PaintListener() {
+
+			@Override
+			public void paintControl(PaintEvent e) {
+				paint(e.gc);
+			}
+
+		});
+		addControlListener(new ControlAdapter() {
+
+			@Override
+			public void controlResized(ControlEvent e) {
+				if (fit) {
+					fit();
+				}
+				updateScrollBars();
+			}
+
+		});
+		getHorizontalBar().addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				originX = getHorizontalBar().getSelection();
+				redraw();
+			}
+
+		});
+		getVerticalBar().addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				originY = getVerticalBar().getSelection();
+				redraw();
+			}
+
+		});
+		addListener(SWT.MouseVerticalWheel, new Listener() {
+
+			@Override
+			public void handleEvent(Event event) {
+				if ((event.stateMask & SWT.MOD1) != 0) {
+					event.doit = false;
+					float newZoom = getZoom() * (event.count > 0 ? 1 + ZOOM_STEP : 1 - ZOOM_STEP);
+					if (isZoomValid(newZoom)) {
+						setZoom(newZoom);
+					}
+				}
+			}
+
+		});
+		addMouseListener(dragger);
+		addMouseMoveListener(dragger);
+		setFile(file);
+	}
+
+	// File handling
+
+	/**
+	 * The open image file.
+	 */
+	private IFile file;
+
+	public IFile getFile() {
+		return file;
+	}
+
+	/**
+	 * Advanced when another file is opened, so that opening the previous one is
+	 * abandoned.
+	 */
+	private final Generation fileGeneration = new Generation();
+
+	/**
+	 * Decodes the open file, <code>null</code> until the file is opened.
+	 */
+	private ImageDecoder decoder;
+
+	/**
+	 * The whole image at a low resolution, drawn where the strips of the current
+	 * resolution are not decoded yet.
+	 */
+	private Image overview;
+
+	private int overviewSubsampling;
+
+	/**
+	 * Shown instead of the image until the file is opened.
+	 */
+	private String message;
+
+	/**
+	 * Opens the given file in the background. The previously opened image, if
+	 * any, stays visible until the new one is opened.
+	 */
+	public void setFile(IFile file) {
+		this.file = file;
+		if (decoder == null) {
+			message = MessageFormat.format("Loading {0}...", file.getName());
+		}
+		fileGeneration.advance();
+		SCHEDULER.schedule(Lane.FOREGROUND, fileGeneration, new OpenTask(file));
+	}
+
+	public void reload() {
+		setFile(getFile());
+	}
+
+	/**
+	 * Reads the dimensions of the image and decodes its overview.
+	 */
+	private final class OpenTask extends Task<ImageDecoder> {
+
+		private final IFile openedFile;
+
+		private ImageData overviewData;
+
+		OpenTask(IFile openedFile) {
+			this.openedFile = openedFile;
+		}
+
+		@Override
+		public ImageDecoder run(IProgressMonitor monitor) throws IOException {
+			ImageDecoder openedDecoder = ImageDecoder.open(openedFile.getRawLocation().toFile());
+			overviewData = openedDecoder.decode(openedDecoder.getOverviewSubsampling(), monitor);
+			return overviewData == null ? null : openedDecoder;
+		}
+
+		@Override
+		public void apply(ImageDecoder openedDecoder) {
+			opened(openedFile, openedDecoder, overviewData);
+		}
+
+		@Override
+		public void failed(Exception exception) {
+			openFailed(openedFile, exception);
+		}
+
+	}
+
+	private void opened(IFile openedFile, ImageDecoder openedDecoder, ImageData overviewData) {
+		if (isDisposed() || !openedFile.equals(file)) {
+			return;
+		}
+		if (decoder != null) {
+			cache.remove(decoder);
+		}
+		if (overview != null) {
+			overview.dispose();
+		}
+		decoder = openedDecoder;
+		overview = new Image(getDisplay(), overviewData);
+		overviewSubsampling = decoder.getOverviewSubsampling();
+		message = null;
+		discardStrips();
+		if (fit) {
+			fit();
+		}
+		updateScrollBars();
+		redraw();
+	}
+
+	private void openFailed(IFile openedFile, Exception exception) {
+		if (isDisposed() || !openedFile.equals(file)) {
+			return;
+		}
+		Activator.logError("Can't open image file " + openedFile.getName(), exception);
+		if (decoder == null) {
+			message = MessageFormat.format("Can''t open {0}: {1}", openedFile.getName(), exception.getLocalizedMessage());
+			redraw();
+		}
+	}
+
+	public void closeFile() {
+		fileGeneration.advance();
+		discardStrips();
+		if (decoder != null) {
+			cache.remove(decoder);
+		}
+		if (overview != null) {
+			overview.dispose();
+		}
+		dispose();
+	}
+
+	// Strips
+
+	/**
+	 * Advanced when the resolution changes or another file is opened, so that
+	 * decoding the strips for the previous one is abandoned.
+	 */
+	private final Generation stripGeneration = new Generation();
+
+	/**
+	 * The strips scheduled for decoding.
+	 */
+	private final Set<ImageStrip> pendingStrips = Collections.newSetFromMap(new ConcurrentHashMap<ImageStrip, Boolean>());
+
+	/**
+	 * The strips drawn most recently, so that the decoding of strips scrolled
+	 * out of view in the meantime can be skipped.
+	 */
+	private volatile int visibleSubsampling;
+
+	private volatile int firstVisibleStrip;
+
+	private volatile int lastVisibleStrip;
+
+	private void discardStrips() {
+		stripGeneration.advance();
+		pendingStrips.clear();
+	}
+
+	private boolean isNearlyVisible(ImageStrip strip) {
+		return strip.subsampling == visibleSubsampling && strip.index >= firstVisibleStrip - 1 && strip.index <= lastVisibleStrip + 1;
+	}
+
+	/**
+	 * Decodes the given strip in the background unless it is available or
+	 * scheduled already.
+	 */
+	private void requestStrip(final ImageStrip strip, Lane lane) {
+		if (strip.index < 0 || strip.index >= decoder.getStripCount(strip.subsampling) || cache.get(strip) != null || !pendingStrips.add(strip)) {
+			return;
+		}
+		SCHEDULER.schedule(lane, stripGeneration, new Task<ImageData>() {
+
+			@Override
+			public ImageData run(IProgressMonitor monitor) throws IOException {
+				ImageData data = null;
+				try {
+					if (isNearlyVisible(strip)) {
+						data = strip.decoder.decodeStrip(strip.subsampling, strip.index, monitor);
+					}
+				} finally {
+					if (data == null) {
+						pendingStrips.remove(strip); // Requested again when it gets visible
+					}
+				}
+				return data;
+			}
+
+			@Override
+			public void apply(ImageData data) {
+				pendingStrips.remove(strip);
+				if (!isDisposed() && strip.decoder == decoder) {
+					cache.put(strip, new Image(getDisplay(), data));
+					redraw();
+				}
+			}
+
+		});
+	}
+
+	// Painting
+
+	private void paint(GC gc) {
+		Rectangle area = getClientArea();
+		gc.setBackground(getBackground());
+		gc.fillRectangle(area);
+		if (decoder == null) {
+			if (message != null) {
+				gc.drawText(message, 5, 5, true);
+			}
+			return;
+		}
+		int imageWidth = getImageWidth();
+		int imageHeight = getImageHeight();
+		int left = imageWidth < area.width ? (area.width - imageWidth) / 2 : -originX;
+		int top = imageHeight < area.height ? (area.height - imageHeight) / 2 : -originY;
+		Rectangle overviewBounds = overview.getBounds();
+		gc.drawImage(overview, 0, 0, overviewBounds.width, overviewBounds.height, left, top, imageWidth, imageHeight);
+		int subsampling = Math.max(ImageDecoder.getSubsampling(zoom), decoder.getMinSubsampling());
+		if (subsampling != visibleSubsampling) {
+			discardStrips();
+			visibleSubsampling = subsampling;
+		}
+		if (subsampling >= overviewSubsampling) {
+			return; // The overview is detailed enough
+		}
+		float stripHeight = ImageDecoder.STRIP_HEIGHT * subsampling * zoom;
+		int first = Math.max(0, (int)(-top / stripHeight));
+		int last = Math.min(decoder.getStripCount(subsampling) - 1, (int)((area.height - top) / stripHeight));
+		firstVisibleStrip = first;
+		lastVisibleStrip = last;
+		for (int index = first; index <= last; index++) {
+			ImageStrip strip = new ImageStrip(decoder, subsampling, index);
+			Image image = cache.get(strip);
+			if (image == null) {
+				requestStrip(strip, Lane.FOREGROUND);
+			} else {
+				Rectangle bounds = image.getBounds();
+				int stripTop = top + Math.round(index * stripHeight);
+				int stripBottom = top + Math.round(index * stripHeight + bounds.height * subsampling * zoom);
+				gc.drawImage(image, 0, 0, bounds.width, bounds.height, left, stripTop, imageWidth, stripBottom - stripTop);
+			}
+		}
+		// Prefetch the adjacent strips for scrolling
+		requestStrip(new ImageStrip(decoder, subsampling, first - 1), Lane.BACKGROUND);
+		requestStrip(new ImageStrip(decoder, subsampling, last + 1), Lane.BACKGROUND);
+	}
+
+	private int getImageWidth() {
+		return decoder == null ? 0 : Math.round(decoder.getWidth() * zoom);
+	}
+
+	private int getImageHeight() {
+		return decoder == null ? 0 : Math.round(decoder.getHeight() * zoom);
+	}
+
+	// Scrolling
+
+	/**
+	 * The position of the visible area in the zoomed image.
+	 */
+	private int originX;
+
+	private int originY;
+
+	public Point getOrigin() {
+		return new Point(originX, originY);
+	}
+
+	public void setOrigin(int x, int y) {
+		originX = x;
+		originY = y;
+		updateScrollBars();
+		redraw();
+	}
+
+	private void updateScrollBars() {
+		Rectangle area = getClientArea();
+		if (decoder == null) {
+			return; // Keep the origin until the size is known
+		}
+		originX = Math.max(0, Math.min(originX, getImageWidth() - area.width));
+		originY = Math.max(0, Math.min(originY, getImageHeight() - area.height));
+		updateScrollBar(getHorizontalBar(), getImageWidth(), area.width, originX);
+		updateScrollBar(getVerticalBar(), getImageHeight(), area.height, originY);
+	}
+
+	private static void updateScrollBar(ScrollBar scrollBar, int size, int visibleSize, int selection) {
+		scrollBar.setEnabled(size > visibleSize);
+		scrollBar.setValues(selection, 0, Math.max(1, size), Math.max(1, Math.min(visibleSize, size)), SCROLL_INCREMENT, Math.max(1, visibleSize));
+	}
+
+	/**
+	 * Moves the image with the mouse.
+	 */
+	private final class Dragger extends MouseAdapter implements MouseMoveListener {
+
+		private Point start;
+
+		private Point startOrigin;
+
+		@Override
+		public void mouseDown(MouseEvent e) {
+			if (e.button == 1) {
+				start = new Point(e.x, e.y);
+				startOrigin = getOrigin();
+			}
+		}
+
+		@Override
+		public void mouseUp(MouseEvent e) {
+			start = null;
+		}
+
+		@Override
+		public void mouseMove(MouseEvent e) {
+			if (start != null) {
+				setOrigin(startOrigin.x - e.x + start.x, startOrigin.y - e.y + start.y);
+			}
+		}
+
+	}
+
+	private final Dragger dragger = new Dragger();
+
+	// Zoom
+
+	/**
+	 * The current zoom factor.
+	 */
+	private float zoom = 1;
+
+	/**
+	 * Whether the zoom factor follows the size of the page.
+	 */
+	private boolean fit = true;
+
+	public float getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * Sets the zoom factor, keeping the center of the visible area.
+	 */
+	public void setZoom(float zoom) {
+		fit = false;
+		zoomTo(zoom);
+	}
+
+	/**
+	 * Checks whether the given zoom factor is in a sensible range.
+	 */
+	public boolean isZoomValid(float zoom) {
+		return zoom >= MIN_ZOOM && zoom <= MAX_ZOOM;
+	}
+
+	public boolean isFit() {
+		return fit;
+	}
+
+	/**
+	 * Sets whether the zoom factor follows the size of the page, so that the
+	 * whole image is visible.
+	 */
+	public void setFit(boolean fit) {
+		this.fit = fit;
+		if (fit) {
+			fit();
+		}
+	}
+
+	private void fit() {
+		Rectangle area = getClientArea();
+		if (decoder != null && area.width > 0 && area.height > 0) {
+			float widthRatio = (float)area.width / decoder.getWidth();
+			float heightRatio = (float)area.height / decoder.getHeight();
+			zoomTo(Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, Math.min(widthRatio, heightRatio))));
+		}
+	}
+
+	private void zoomTo(float newZoom) {
+		if (newZoom == zoom) {
+			return;
+		}
+		Rectangle area = getClientArea();
+		float centerX = (originX + area.width / 2f) / zoom;
+		float centerY = (originY + area.height / 2f) / zoom;
+		zoom = newZoom;
+		originX = Math.round(centerX * zoom - area.width / 2f);
+		originY = Math.round(centerY * zoom - area.height / 2f);
+		updateScrollBars();
+		redraw();
+		if (toolbar != null) {
+			toolbar.refresh();
+		}
+	}
+
+	// Toolbar
+
+	private ImageViewToolbarManager toolbar;
+
+	public void setToolbar(ImageViewToolbarManager toolbar) {
+		this.toolbar = toolbar;
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.eclipse.ui.views.image;
+
+import java.text.MessageFormat;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.ActionContributionItem;
+import org.eclipse.jface.action.IContributionItem;
+
+public class ImageViewToolbarManager {
+
+	private static final String ICON_PATH = "icons/"; //$NON-NLS-1$
+
+	private ImageViewPage page;
+
+	public void setPage(ImageViewPage page) {
+		this.page = page;
+	}
+
+	public ImageViewPage getPage() {
+		return page;
+	}
+
+	private final FitToPageAction fitToPageAction = new FitToPageAction();
+
+	private final IContributionItem[] contributions = new IContributionItem[] {
+		new ActionContributionItem(new ZoomOutAction()),
+		new ActionContributionItem(new ZoomInAction()),
+		new ActionContributionItem(new ZoomToActualSizeAction()),
+		new ActionContributionItem(fitToPageAction)
+	};
+
+	public IContributionItem[] getToolbarContributions() {
+		return contributions;
+	}
+
+	public void refresh() {
+		fitToPageAction.setChecked(getPage() != null && getPage().isFit());
+		for (IContributionItem contribution : contributions) {
+			contribution.update();
+		}
+	}
+
+	// Zoom
+
+	public abstract class ZoomAction extends Action {
+
+		public ZoomAction(String tooltipTextFragment, String iconNameFragment) {
+			setToolTipText(MessageFormat.format("Zoom {0}", tooltipTextFragment));
+			setText(getToolTipText());
+			setImageDescriptor(Activator.getImageDescriptor(ICON_PATH + MessageFormat.format("Zoom{0}.png", iconNameFragment))); //$NON-NLS-1$
+		}
+
+		@Override
+		public void run() {
+			getPage().setZoom(getNewZoom());
+			refresh();
+		}
+
+		protected abstract float getNewZoom();
+
+		@Override
+		public boolean isEnabled() {
+			return getPage() != null && getPage().isZoomValid(getNewZoom());
+		}
+
+	}
+
+	public class ZoomOutAction extends ZoomAction {
+
+		public ZoomOutAction() {
+			super("Out", "Out"); //$NON-NLS-2$
+		}
+
+		@Override
+		protected float getNewZoom() {
+			return getPage().getZoom() * (1 - ImageViewPage.ZOOM_STEP);
+		}
+
+	}
+
+	public class ZoomInAction extends ZoomAction {
+
+		public ZoomInAction() {
+			super("In", "In"); //$NON-NLS-2$
+		}
+
+		@Override
+		protected float getNewZoom() {
+			return getPage().getZoom() * (1 + ImageViewPage.ZOOM_STEP);
+		}
+
+	}
+
+	public class ZoomToActualSizeAction extends ZoomAction {
+
+		public ZoomToActualSizeAction() {
+			super("To Actual Size", "ToActualSize"); //$NON-NLS-2$
+		}
+
+		@Override
+		protected float getNewZoom() {
+			return 1;
+		}
+
+	}
+
+	public class FitToPageAction extends Action {
+
+		public FitToPageAction() {
+			super(null, AS_CHECK_BOX);
+			setToolTipText("Fit To Page");
+			setText(getToolTipText());
+			setImageDescriptor(Activator.getImageDescriptor(ICON_PATH + "FitToPage.png")); //$NON-NLS-1$
+		}
+
+		@Override
+		public void run() {
+			getPage().setFit(isChecked());
+			refresh();
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return getPage() != null && super.isEnabled();
+		}
+
+	}
+
+}
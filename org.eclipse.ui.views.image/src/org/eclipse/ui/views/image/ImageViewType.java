@@ -0,0 +1,85 @@
+package org.eclipse.ui.views.image;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.ui.part.PageBook;
+import org.eclipse.ui.views.file.IPersistentFileViewType;
+
+/**
+ * Shows raster image files in the formats supported by ImageIO, e.g. PNG,
+ * JPEG, GIF and BMP.
+ */
+public class ImageViewType implements IPersistentFileViewType<ImageViewPage> {
+
+	private static final String ZOOM = "zoom"; //$NON-NLS-1$
+
+	private static final String FIT = "fit"; //$NON-NLS-1$
+
+	private static final String ORIGIN_X = "originX"; //$NON-NLS-1$
+
+	private static final String ORIGIN_Y = "originY"; //$NON-NLS-1$
+
+	private final ImageViewToolbarManager toolbar = new ImageViewToolbarManager();
+
+	@Override
+	public ImageViewPage createPage(PageBook pageBook, IFile file) throws Exception {
+		return new ImageViewPage(pageBook, file);
+	}
+
+	@Override
+	public IContributionItem[] getToolbarContributions() {
+		return toolbar.getToolbarContributions();
+	}
+
+	@Override
+	public void pageShown(ImageViewPage page) {
+		toolbar.setPage(page);
+		page.setToolbar(toolbar);
+		toolbar.refresh();
+	}
+
+	@Override
+	public void reload(ImageViewPage page) throws Exception {
+		page.reload();
+	}
+
+	@Override
+	public void pageClosed(ImageViewPage page) {
+		if (toolbar.getPage() == page) {
+			toolbar.setPage(null);
+			toolbar.refresh();
+		}
+		page.closeFile();
+	}
+
+	@Override
+	public void savePageState(ImageViewPage page, IDialogSettings settings) {
+		settings.put(ZOOM, page.getZoom());
+		settings.put(FIT, page.isFit());
+		Point origin = page.getOrigin();
+		settings.put(ORIGIN_X, origin.x);
+		settings.put(ORIGIN_Y, origin.y);
+	}
+
+	@Override
+	public void restorePageState(ImageViewPage page, IDialogSettings settings) {
+		try {
+			if (settings.getBoolean(FIT)) {
+				page.setFit(true);
+			} else {
+				page.setZoom(settings.getFloat(ZOOM));
+				page.setOrigin(settings.getInt(ORIGIN_X), settings.getInt(ORIGIN_Y));
+			}
+		} catch (NumberFormatException e) {
+			// No state saved
+		}
+	}
+
+	@Override
+	public IFile getFile(IFile sourceFile) {
+		return sourceFile;
+	}
+
+}
@@ -10,12 +10,21 @@ public class Activator extends AbstractUIPlugin {
 
 	private static Activator instance;
 
+	private final MidiPlaybackEngine playbackEngine = new MidiPlaybackEngine();
+
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		instance = this;
 	}
 
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		playbackEngine.close();
+		instance = null;
+		super.stop(context);
+	}
+
 	/**
 	 * Returns the shared plug-in instance.
 	 */
@@ -23,6 +32,13 @@ public class Activator extends AbstractUIPlugin {
 		return instance;
 	}
 
+	/**
+	 * Returns the sequencer shared by the MIDI view pages.
+	 */
+	public MidiPlaybackEngine getPlaybackEngine() {
+		return playbackEngine;
+	}
+
 	/**
 	 * Returns the plug-in's identifier.
 	 */
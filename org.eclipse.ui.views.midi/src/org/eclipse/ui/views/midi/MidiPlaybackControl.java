@@ -1,10 +1,18 @@
 package org.eclipse.ui.views.midi;
 
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Sequencer;
+import javax.util.midi.NoteDensityMap;
+import javax.util.midi.TempoMap;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ControlAdapter;
+import org.eclipse.swt.events.ControlEvent;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -18,6 +26,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Slider;
+import org.eclipse.ui.views.file.ScoreFollowing;
 
 public class MidiPlaybackControl extends Composite {
 
@@ -25,18 +34,42 @@ public class MidiPlaybackControl extends Composite {
 	private int maximumValue;
 	private String maxValueString;
 	private int mark = -1;
+	/**
+	 * The loop region in microseconds, -1 if not set.
+	 */
+	private int loopStart = -1;
+	private int loopEnd = -1;
+	private boolean looping;
+	private PianoRoll pianoRoll;
 	private Slider slider;
 	private Label displayer;
-	private final Sequencer sequencer;
+	private final MidiViewPage page;
 	private Button playPause;
 	private TempoEditor tempoControl;
-
-	public MidiPlaybackControl(Composite parent, Sequencer sequencer) {
+	private PositionTracker positionTracker;
+	/**
+	 * Whether playback starts as soon as the sequence is set on the sequencer.
+	 */
+	private boolean playRequested;
+	/**
+	 * The playback time covered by one pixel of the slider, read by the
+	 * position tracker thread.
+	 */
+	private volatile long microsecondsPerPixel = 1;
+	/**
+	 * The second and the beat shown by the label, so that it is only
+	 * formatted when they change.
+	 */
+	private long displayedSecond = -1;
+	private long displayedBeat = -1;
+
+	public MidiPlaybackControl(Composite parent, MidiViewPage page) {
 		super(parent, SWT.NONE);
-		this.sequencer = sequencer;
+		this.page = page;
 		setLayout(new GridLayout(3, false));
 
 		createButtonRow();
+		createPianoRollRow();
 		createSliderRow();
 		addPaintListener(new PaintListener() {
 
@@ -66,7 +99,7 @@ public class MidiPlaybackControl extends Composite {
 
 	private void createButtonRow() {
 		Composite rowParent = new Composite(this, SWT.NONE);
-		rowParent.setLayout(new GridLayout(5, false));
+		rowParent.setLayout(new GridLayout(8, false));
 		GridData rowLayoutData = new GridData();
 		rowLayoutData.horizontalSpan = 3;
 		rowParent.setLayoutData(rowLayoutData);
@@ -131,6 +164,54 @@ public class MidiPlaybackControl extends Composite {
 			}
 		});
 
+		Button setLoopStart = new Button(rowParent, SWT.FLAT);
+		setLoopStart.setText("A"); //$NON-NLS-1$
+		setLoopStart.setToolTipText("Start loop at current position");
+
+		Button setLoopEnd = new Button(rowParent, SWT.FLAT);
+		setLoopEnd.setText("B"); //$NON-NLS-1$
+		setLoopEnd.setToolTipText("End loop at current position");
+
+		Button loop = new Button(rowParent, SWT.TOGGLE);
+		loop.setText("A-B"); //$NON-NLS-1$
+		loop.setToolTipText("Loop between A and B");
+		loop.setEnabled(false);
+
+		setLoopStart.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				loopStart = getValue();
+				if (loopEnd <= loopStart) {
+					loopEnd = -1;
+				}
+				loop.setEnabled(loopEnd > loopStart);
+				loopChanged();
+				focusPlayButton();
+			}
+		});
+
+		setLoopEnd.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				loopEnd = getValue();
+				if (loopStart < 0 || loopStart >= loopEnd) {
+					loopStart = 0;
+				}
+				loop.setEnabled(loopEnd > loopStart);
+				loopChanged();
+				focusPlayButton();
+			}
+		});
+
+		loop.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				looping = loop.getSelection();
+				loopChanged();
+				focusPlayButton();
+			}
+		});
+
 		playPause = new Button(rowParent, SWT.FLAT);
 		playPause.setImage(getImage("Play"));
 		playPause.setToolTipText("Play/Pause");
@@ -147,6 +228,34 @@ public class MidiPlaybackControl extends Composite {
 	}
 
 
+	private void createPianoRollRow() {
+		pianoRoll = new PianoRoll(this, this);
+		GridData pianoRollLayoutData = new GridData(SWT.FILL, SWT.FILL, true, false);
+		pianoRollLayoutData.heightHint = 48;
+		pianoRoll.setLayoutData(pianoRollLayoutData);
+		// Keeps the piano roll above the slider
+		Label filler = new Label(this, SWT.NONE);
+		GridData fillerLayoutData = new GridData();
+		fillerLayoutData.horizontalSpan = 2;
+		filler.setLayoutData(fillerLayoutData);
+	}
+
+	/**
+	 * Shows the given note density map in the piano roll.
+	 */
+	void setDensityMap(NoteDensityMap densityMap) {
+		if (!pianoRoll.isDisposed()) {
+			pianoRoll.setDensityMap(densityMap);
+		}
+	}
+
+	/**
+	 * Moves the playback position to the given fraction of the sequence.
+	 */
+	void seek(double fraction) {
+		setValue((int)Math.round(fraction * getMaximumValue()));
+	}
+
 	private void createSliderRow() {
 		slider = new Slider(this, SWT.NONE);
 		GridData sliderLayoutData = new GridData();
@@ -163,8 +272,21 @@ public class MidiPlaybackControl extends Composite {
 
 		});
 
+		slider.addControlListener(new ControlAdapter() {
+
+			@Override
+			public void controlResized(ControlEvent e) {
+				updateMicrosecondsPerPixel();
+			}
+
+		});
+
 		displayer = new Label(this, SWT.CENTER);
-		displayer.setLayoutData( new GridData(80, SWT.DEFAULT)); // XXX proper width
+		displayer.setLayoutData( new GridData(160, SWT.DEFAULT)); // XXX proper width
+	}
+
+	private void updateMicrosecondsPerPixel() {
+		microsecondsPerPixel = Math.max(1, getMaximumValue() / Math.max(1, slider.getSize().x));
 	}
 
 	private Image getImage(String name) {
@@ -175,6 +297,25 @@ public class MidiPlaybackControl extends Composite {
 		return value;
 	}
 
+	/**
+	 * Returns the playback position in microseconds.
+	 */
+	int getPosition() {
+		return getValue();
+	}
+
+	/**
+	 * Sets the playback position in microseconds. If the sequence is not
+	 * loaded yet, the position is taken over when it is.
+	 */
+	void setPosition(int position) {
+		if (page.getSequenceInfo() == null) {
+			value = Math.max(0, position);
+		} else {
+			setValue(position);
+		}
+	}
+
 	private void setValue(int value, boolean setSequncerPosition) {
 		value = Math.max(0, Math.min(getMaximumValue(), value));
 		this.value = value;
@@ -182,9 +323,23 @@ public class MidiPlaybackControl extends Composite {
 			return;
 		}
 		slider.setSelection(value);
-		displayer.setText(MessageFormat.format("{0}/{1}", display(value), maxValueString));
-		if (setSequncerPosition) {
-			sequencer.setMicrosecondPosition(value);
+		pianoRoll.setPosition(getMaximumValue() == 0 ? 0 : value / (double)getMaximumValue());
+		long second = value / 1000000;
+		TempoMap tempoMap = page.getTempoMap();
+		long tick = tempoMap != null && tempoMap.hasBars() ? tempoMap.getTick(value) : -1;
+		long beat = tick >= 0 ? getBeatKey(tempoMap, tick) : -1;
+		if (second != displayedSecond || beat != displayedBeat) {
+			displayedSecond = second;
+			displayedBeat = beat;
+			String time = MessageFormat.format("{0}/{1} -{2}", display(value), maxValueString, display((long)((getMaximumValue() - value) / Math.max(page.getTempoFactor(), 0.01f))));
+			if (tick >= 0) {
+				time = MessageFormat.format("{0,number,#}:{1,number,#}  {2}", tempoMap.getBar(tick) + 1, tempoMap.getBeat(tick) + 1, time);
+			}
+			displayer.setText(time);
+		}
+		Sequencer sequencer = page.getAttachedSequencer();
+		if (setSequncerPosition && sequencer != null) {
+			page.seek(sequencer, value);
 		}
 	}
 
@@ -192,6 +347,21 @@ public class MidiPlaybackControl extends Composite {
 		setValue(value, true);
 	}
 
+	/**
+	 * Returns a number identifying the beat containing the given tick.
+	 */
+	private static long getBeatKey(TempoMap tempoMap, long tick) {
+		return ((long)tempoMap.getBar(tick) << 16) | tempoMap.getBeat(tick);
+	}
+
+	/**
+	 * Updates the remaining time, which depends on the tempo factor.
+	 */
+	void tempoFactorChanged() {
+		displayedSecond = -1;
+		setValue(getValue(), false);
+	}
+
 	private void rewind() {
 		setValue(0);
 	}
@@ -209,27 +379,109 @@ public class MidiPlaybackControl extends Composite {
 	}
 
 	public void sequencerContentChanged() {
-		this.maximumValue = (int)sequencer.getMicrosecondLength();
+		this.maximumValue = (int)page.getSequenceInfo().getMicrosecondLength();
 		slider.setMaximum(maximumValue + 1);
 		slider.setPageIncrement(maximumValue / 10);
 		slider.setIncrement(maximumValue / 100);
 		maxValueString=display(maximumValue);
+		if (loopEnd > maximumValue) {
+			loopStart = -1;
+			loopEnd = -1;
+		}
+		loopChanged();
+		displayedSecond = -1;
+		updateMicrosecondsPerPixel();
 		setValue(getValue(), false);
 	}
 
+	/**
+	 * Called when the page is attached to the shared sequencer.
+	 */
+	void attached(Sequencer sequencer) {
+		page.seek(sequencer, getValue());
+		applyLoop(sequencer);
+		if (playRequested) {
+			playRequested = false;
+			play();
+		}
+	}
+
+	private boolean isLooping() {
+		return looping && loopStart >= 0 && loopEnd > loopStart;
+	}
+
+	private void loopChanged() {
+		if (loopStart >= 0 && loopEnd > loopStart && getMaximumValue() > 0) {
+			pianoRoll.setLoopRegion(loopStart / (double)getMaximumValue(), loopEnd / (double)getMaximumValue());
+		} else {
+			pianoRoll.setLoopRegion(-1, -1);
+		}
+		Sequencer sequencer = page.getAttachedSequencer();
+		if (sequencer != null) {
+			applyLoop(sequencer);
+		}
+	}
+
+	/**
+	 * Lets the sequencer repeat the loop region by itself, so that it jumps
+	 * back without a gap.
+	 */
+	private void applyLoop(Sequencer sequencer) {
+		// The start point must never be after the end point
+		sequencer.setLoopStartPoint(0);
+		if (isLooping() && page.getCompactSequence() != null) {
+			long endTick = Math.min(page.getTick(loopEnd), sequencer.getTickLength());
+			sequencer.setLoopEndPoint(endTick);
+			sequencer.setLoopStartPoint(Math.min(page.getTick(loopStart), endTick));
+			sequencer.setLoopCount(Sequencer.LOOP_CONTINUOUSLY);
+		} else {
+			sequencer.setLoopEndPoint(-1);
+			sequencer.setLoopCount(0);
+		}
+	}
+
 	private void play() {
+		if (page.getSequenceInfo() == null) {
+			return;
+		}
+		Sequencer sequencer;
+		try {
+			sequencer = page.getSequencer();
+		} catch (MidiUnavailableException | InvalidMidiDataException e) {
+			Activator.logError("Can't start MIDI playback", e);
+			return;
+		}
+		if (!page.isSequenceSet()) {
+			playRequested = true; // Started when the sequence is built
+			return;
+		}
+		if (isLooping() && (getValue() < loopStart || getValue() >= loopEnd)) {
+			setValue(loopStart);
+		}
 		sequencer.start();
 		playPauseImage("Pause");
-		Display.getDefault().timerExec(0, new Updater());
+		stopPositionTracker();
+		positionTracker = new PositionTracker(sequencer);
+		positionTracker.start();
 	}
 
 	public void pause() {
-		if (sequencer.isOpen()) {
+		playRequested = false;
+		stopPositionTracker();
+		Sequencer sequencer = page.getAttachedSequencer();
+		if (sequencer != null && sequencer.isOpen()) {
 			sequencer.stop();
 			playPauseImage("Play");
 		}
 	}
 
+	private void stopPositionTracker() {
+		if (positionTracker != null) {
+			positionTracker.cancel();
+			positionTracker = null;
+		}
+	}
+
 	private void playPauseImage(String image) {
 		if (playPause != null && !playPause.isDisposed()) {
 			Image oldImage = playPause.getImage();
@@ -241,7 +493,8 @@ public class MidiPlaybackControl extends Composite {
 	}
 
 	private boolean isPlaying() {
-		return sequencer.isRunning();
+		Sequencer sequencer = page.getAttachedSequencer();
+		return sequencer != null && sequencer.isRunning();
 	}
 
 	public void togglePlayback() {
@@ -252,7 +505,7 @@ public class MidiPlaybackControl extends Composite {
 		}
 	}
 
-	private boolean isFinished() {
+	private static boolean isFinished(Sequencer sequencer) {
 		return sequencer.getMicrosecondPosition() >= sequencer.getMicrosecondLength();
 	}
 
@@ -265,8 +518,8 @@ public class MidiPlaybackControl extends Composite {
 	// Tempo
 
 	private TempoEditor addAndGetTempoControl(Composite parent) {
-		TempoEditor result = new TempoEditor(parent, sequencer);
-		result.setValue((int)(sequencer.getTempoFactor()*100));
+		TempoEditor result = new TempoEditor(parent, page);
+		result.setValue((int)(page.getTempoFactor()*100));
 		GridData layoutData = new GridData();
 		layoutData.horizontalSpan=3;
 		layoutData.horizontalAlignment = SWT.FILL;
@@ -275,19 +528,132 @@ public class MidiPlaybackControl extends Composite {
 		return result;
 	}
 
-	private class Updater implements Runnable {
+	/**
+	 * Follows the position of the running sequencer in a thread of its own and
+	 * publishes it to the UI thread only when the second or the beat shown by
+	 * the label or the pixel of the slider thumb changes. If the locations of the notes in
+	 * the source file are known, the note reached is published to the score
+	 * following listeners as well. Updates are coalesced, so at most one of
+	 * each kind is queued at a time.
+	 */
+	private class PositionTracker extends Thread {
+
+		private static final int POLL_MILLISECONDS = 5;
+
+		private final Sequencer sequencer;
+
+		private final Display display = getDisplay();
+
+		private final AtomicLong pendingPosition = new AtomicLong(-1);
+
+		private final ScoreMap scoreMap = page.getScoreMap();
+
+		private final TempoMap tempoMap = page.getTempoMap();
+
+		private final AtomicInteger pendingNote = new AtomicInteger(-1);
+
+		private volatile boolean cancelled;
+
+		private final Runnable positionPublisher = new Runnable() {
+
+			@Override
+			public void run() {
+				long position = pendingPosition.getAndSet(-1);
+				if (!cancelled && position >= 0) {
+					setValue((int)position, false);
+				}
+			}
+
+		};
+
+		private final Runnable notePublisher = new Runnable() {
+
+			@Override
+			public void run() {
+				int note = pendingNote.getAndSet(-1);
+				if (!cancelled && note >= 0) {
+					ScoreFollowing.firePositionPlayed(scoreMap.getSourceFile(note), scoreMap.getLineNumber(note), scoreMap.getColumnNumber(note));
+				}
+			}
+
+		};
+
+		private final Runnable finisher = new Runnable() {
+
+			@Override
+			public void run() {
+				if (!cancelled) {
+					pause();
+					resetValue();
+				}
+			}
+
+		};
+
+		public PositionTracker(Sequencer sequencer) {
+			super("MIDI playback position"); //$NON-NLS-1$
+			setDaemon(true);
+			this.sequencer = sequencer;
+		}
+
+		public void cancel() {
+			cancelled = true;
+			interrupt();
+		}
 
 		@Override
 		public void run() {
-			setValue((int) sequencer.getMicrosecondPosition(), false);
-			if (isFinished()) {
-				pause();
-				resetValue();
-			} else if (isPlaying()) {
-				final int millisecondsPerSecond = 1000;
-				final int framesPerSecond = 25;
-				Display.getDefault().timerExec(millisecondsPerSecond / framesPerSecond, this);
+			long publishedSecond = -1;
+			long publishedPixel = -1;
+			long publishedBeat = -1;
+			int publishedNote = -1;
+			try {
+				while (!cancelled && sequencer.isRunning()) {
+					long tick = sequencer.getTickPosition();
+					if (scoreMap != null) {
+						int note = scoreMap.getNoteIndex(tick);
+						if (note != publishedNote) {
+							publishedNote = note;
+							publishNote(note);
+						}
+					}
+					long position = sequencer.getMicrosecondPosition();
+					long second = position / 1000000;
+					long pixel = position / microsecondsPerPixel;
+					long beat = tempoMap != null && tempoMap.hasBars() ? getBeatKey(tempoMap, tick) : -1;
+					if (second != publishedSecond || pixel != publishedPixel || beat != publishedBeat) {
+						publishedSecond = second;
+						publishedPixel = pixel;
+						publishedBeat = beat;
+						publish(position);
+					}
+					Thread.sleep(POLL_MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (!cancelled && isFinished(sequencer)) {
+				asyncExec(finisher);
+			}
+		}
+
+		private void publish(long position) {
+			if (pendingPosition.getAndSet(position) < 0) {
+				asyncExec(positionPublisher);
 			}
 		}
+
+		private void publishNote(int note) {
+			if (note >= 0 && pendingNote.getAndSet(note) < 0) {
+				asyncExec(notePublisher);
+			}
+		}
+
+		private void asyncExec(Runnable runnable) {
+			if (!display.isDisposed()) {
+				display.asyncExec(runnable);
+			}
+		}
+
 	}
 }
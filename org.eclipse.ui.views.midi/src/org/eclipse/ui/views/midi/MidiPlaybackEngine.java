@@ -0,0 +1,88 @@
+package org.eclipse.ui.views.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Sequencer;
+
+/**
+ * The sequencer shared by all MIDI view pages. Opening a sequencer loads a
+ * complete synthesizer with its soundbank, so it is opened only once, when a
+ * page needs it for the first time. Only one page, usually the one shown in
+ * the foreground, is attached to the sequencer at a time.
+ */
+public class MidiPlaybackEngine {
+
+	private volatile Sequencer sequencer;
+
+	/**
+	 * Guards opening the sequencer, which may take a while, so that the pages
+	 * can still access the engine in the meantime.
+	 */
+	private final Object openLock = new Object();
+
+	private MidiViewPage owner;
+
+	/**
+	 * Returns the shared sequencer, opening it if necessary. Opening loads the
+	 * synthesizer and its soundbank, so it should be done in the background
+	 * before playback is started for the first time.
+	 */
+	public Sequencer getSequencer() throws MidiUnavailableException {
+		synchronized (openLock) {
+			if (sequencer == null) {
+				Sequencer newSequencer = MidiSystem.getSequencer();
+				newSequencer.open();
+				sequencer = newSequencer;
+			}
+			return sequencer;
+		}
+	}
+
+	/**
+	 * Attaches the given page to the sequencer, detaching the page attached
+	 * before, and returns the sequencer.
+	 */
+	public synchronized Sequencer attach(MidiViewPage page) throws MidiUnavailableException, InvalidMidiDataException {
+		Sequencer sequencer = getSequencer();
+		if (page != owner) {
+			if (owner != null) {
+				owner.detached(sequencer);
+				owner = null;
+			}
+			page.attached(sequencer);
+			owner = page;
+		}
+		return sequencer;
+	}
+
+	/**
+	 * Detaches the given page from the sequencer if it is attached.
+	 */
+	public synchronized void detach(MidiViewPage page) {
+		if (page == owner) {
+			owner.detached(sequencer);
+			owner = null;
+		}
+	}
+
+	/**
+	 * Returns the sequencer if the given page is attached to it, otherwise
+	 * <code>null</code>.
+	 */
+	public synchronized Sequencer getSequencer(MidiViewPage page) {
+		return page == owner ? sequencer : null;
+	}
+
+	/**
+	 * Closes the sequencer.
+	 */
+	public synchronized void close() {
+		owner = null;
+		if (sequencer != null) {
+			sequencer.close();
+			sequencer = null;
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.eclipse.ui.views.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiUnavailableException;
+import javax.util.midi.CompactSequence;
+import javax.util.midi.MidiRenderer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Renders a MIDI sequence to a WAV file in the background.
+ */
+public class MidiRenderJob extends Job {
+
+	private static final int MILLISECONDS_PER_SECOND = 1000;
+
+	private final CompactSequence sequence;
+
+	private final boolean[] playedTracks;
+
+	private final File waveFile;
+
+	public MidiRenderJob(CompactSequence sequence, boolean[] playedTracks, File waveFile) {
+		super(MessageFormat.format("Exporting {0}", waveFile.getName()));
+		this.sequence = sequence;
+		this.playedTracks = playedTracks;
+		this.waveFile = waveFile;
+		setPriority(LONG);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		final SubMonitor progress = SubMonitor.convert(monitor, getName(), (int)(sequence.getMicrosecondLength() / MILLISECONDS_PER_SECOND));
+		try {
+			boolean completed = MidiRenderer.render(sequence, playedTracks, waveFile, new MidiRenderer.Progress() {
+
+				private int reported;
+
+				@Override
+				public void rendered(long microseconds, long totalMicroseconds) {
+					int milliseconds = (int)(microseconds / MILLISECONDS_PER_SECOND);
+					progress.worked(milliseconds - reported);
+					reported = milliseconds;
+				}
+
+				@Override
+				public boolean isCanceled() {
+					return progress.isCanceled();
+				}
+
+			});
+			if (!completed) {
+				waveFile.delete();
+				return Status.CANCEL_STATUS;
+			}
+			return Status.OK_STATUS;
+		} catch (MidiUnavailableException | InvalidMidiDataException | IOException e) {
+			waveFile.delete();
+			return new Status(IStatus.ERROR, Activator.getId(), MessageFormat.format("Can''t export {0}", waveFile.getName()), e);
+		}
+	}
+
+}
@@ -1,18 +1,29 @@
 package org.eclipse.ui.views.midi;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
 import javax.sound.midi.Sequence;
 import javax.sound.midi.Sequencer;
-import javax.sound.midi.Track;
-import javax.util.midi.MidiUtils;
+import javax.sound.midi.Transmitter;
+import javax.util.midi.ChaseIndex;
+import javax.util.midi.ChaseState;
+import javax.util.midi.CompactSequence;
+import javax.util.midi.MidiFileReader;
+import javax.util.midi.NoteDensityMap;
+import javax.util.midi.SequenceInfo;
+import javax.util.midi.TempoMap;
+import javax.util.midi.TrackInfo;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.viewers.CellEditor;
 import org.eclipse.jface.viewers.CheckboxCellEditor;
 import org.eclipse.jface.viewers.EditingSupport;
@@ -31,8 +42,13 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.views.file.FileViewScheduler;
+import org.eclipse.ui.views.file.FileViewScheduler.Generation;
+import org.eclipse.ui.views.file.FileViewScheduler.Lane;
+import org.eclipse.ui.views.file.FileViewScheduler.Task;
 
 public class MidiViewPage extends ScrolledComposite {
 
@@ -40,12 +56,18 @@ public class MidiViewPage extends ScrolledComposite {
 
 	private final Composite content;
 
-	private final Sequencer sequencer;
-	
+	private final MidiPlaybackEngine engine = Activator.getInstance().getPlaybackEngine();
+
+	/**
+	 * Shown instead of the playback control and the tracks until the MIDI file
+	 * is loaded.
+	 */
+	private final Label placeholder;
+
 	private final MidiPlaybackControl playbackControl;
 
 
-	public MidiViewPage(Composite parent, IFile file) throws MidiUnavailableException, InvalidMidiDataException, IOException {
+	public MidiViewPage(Composite parent, IFile file) {
 		super(parent, SWT.H_SCROLL | SWT.V_SCROLL);
 		setExpandHorizontal(true);
 		setExpandVertical(true);
@@ -53,10 +75,8 @@ public class MidiViewPage extends ScrolledComposite {
 		content.setLayout(new GridLayout(1, true));
 		setContent(content);
 
-		sequencer = MidiSystem.getSequencer();
-		sequencer.open();
-
-		playbackControl = new MidiPlaybackControl(content, sequencer);
+		placeholder = new Label(content, SWT.WRAP);
+		playbackControl = new MidiPlaybackControl(content, this);
 		addTracks(content);
 		for (Control child : content.getChildren()) {
 			GridData layoutData = new GridData();
@@ -64,6 +84,7 @@ public class MidiViewPage extends ScrolledComposite {
 			layoutData.grabExcessHorizontalSpace = true;
 			child.setLayoutData(layoutData);
 		}
+		showPlaceholder(MessageFormat.format("Loading {0}...", file.getName()));
 
 		setFile(file);
 	}
@@ -79,22 +100,185 @@ public class MidiViewPage extends ScrolledComposite {
 		return file;
 	}
 
-	public void setFile(IFile file) throws InvalidMidiDataException, IOException {
+	/**
+	 * Loads the given file in the background. The previously loaded sequence,
+	 * if any, stays playable until the new one is loaded.
+	 */
+	public void setFile(IFile file) {
 		this.file = file;
-		sequencer.setSequence(MidiSystem.getSequence(file.getRawLocation().toFile()));
+		loadGeneration.advance();
+		SCHEDULER.schedule(Lane.FOREGROUND, loadGeneration, new LoadTask(file));
+	}
+
+	public void reload() {
+		setFile(getFile());
+	}
+
+	/**
+	 * Runs the loading and the overview computation of all MIDI view pages.
+	 */
+	private static final FileViewScheduler SCHEDULER = new FileViewScheduler("MIDI view");
+
+	/**
+	 * Advanced when another file is loaded, so that loading the previous one
+	 * is abandoned.
+	 */
+	private final Generation loadGeneration = new Generation();
+
+	/**
+	 * Advanced when another sequence is loaded, so that computing the overview
+	 * of the previous one is abandoned.
+	 */
+	private final Generation overviewGeneration = new Generation();
+
+	/**
+	 * Advanced when the page is attached or detached, so that building the
+	 * sequence for a previous attachment is abandoned.
+	 */
+	private final Generation sequenceGeneration = new Generation();
+
+	/**
+	 * Parses the MIDI file and opens the shared sequencer, so that the
+	 * synthesizer and its soundbank are ready when playback is started.
+	 */
+	private final class LoadTask extends Task<CompactSequence> {
+
+		private final IFile loadedFile;
+
+		private SequenceInfo loadedSequenceInfo;
+
+		private ChaseIndex loadedChaseIndex;
+
+		private ScoreMap loadedScoreMap;
+
+		LoadTask(IFile loadedFile) {
+			this.loadedFile = loadedFile;
+		}
+
+		@Override
+		public CompactSequence run(IProgressMonitor monitor) throws InvalidMidiDataException, IOException {
+			CompactSequence loadedSequence = MidiFileReader.read(loadedFile.getRawLocation().toFile());
+			if (monitor.isCanceled()) {
+				return null;
+			}
+			loadedSequenceInfo = new SequenceInfo(loadedSequence);
+			loadedChaseIndex = new ChaseIndex(loadedSequence);
+			loadedScoreMap = loadScoreMap(loadedFile, loadedSequence);
+			try {
+				engine.getSequencer();
+			} catch (MidiUnavailableException e) {
+				Activator.logError("Can't open MIDI sequencer", e);
+			}
+			return loadedSequence;
+		}
+
+		@Override
+		public void apply(CompactSequence loadedSequence) {
+			loaded(loadedFile, loadedSequence, loadedSequenceInfo, loadedChaseIndex, loadedScoreMap);
+		}
+
+		@Override
+		public void failed(Exception exception) {
+			loadFailed(loadedFile, exception);
+		}
+
+	}
+
+	/**
+	 * Computes the note density map of the loaded sequence for the piano roll
+	 * of the playback control. The maps are cached per file, so reopening an
+	 * unchanged file is instantaneous and reloading a changed file only
+	 * processes the changed tracks.
+	 */
+	private void scheduleOverview() {
+		final IFile overviewFile = getFile();
+		final CompactSequence overviewSequence = getCompactSequence();
+		overviewGeneration.advance();
+		SCHEDULER.schedule(Lane.BACKGROUND, overviewGeneration, new Task<NoteDensityMap>() {
+
+			@Override
+			public NoteDensityMap run(IProgressMonitor monitor) {
+				return NoteDensityCache.get(overviewFile.getRawLocation().toFile(), overviewSequence, monitor);
+			}
+
+			@Override
+			public void apply(NoteDensityMap densityMap) {
+				if (!isDisposed() && overviewFile.equals(file) && overviewSequence == compactSequence) {
+					playbackControl.setDensityMap(densityMap);
+				}
+			}
+
+		});
+	}
+
+	private static ScoreMap loadScoreMap(IFile file, CompactSequence sequence) {
+		if (sequence.getDivisionType() != Sequence.PPQ) {
+			return null;
+		}
+		try {
+			return ScoreMap.load(file.getRawLocation().toFile(), sequence.getResolution());
+		} catch (IOException e) {
+			Activator.logError("Can't read the notes of " + file.getName(), e);
+			return null;
+		}
+	}
+
+	private void loaded(IFile loadedFile, CompactSequence loadedSequence, SequenceInfo loadedSequenceInfo, ChaseIndex loadedChaseIndex, ScoreMap loadedScoreMap) {
+		if (isDisposed() || !loadedFile.equals(file)) {
+			return;
+		}
+		compactSequence = loadedSequence;
+		sequenceInfo = loadedSequenceInfo;
+		chaseIndex = loadedChaseIndex;
+		scoreMap = loadedScoreMap;
 		playbackControl.sequencerContentChanged();
-		tracks.setInput(sequencer.getSequence());
+		scheduleOverview();
+		Sequencer sequencer = getAttachedSequencer();
+		if (sequencer != null) {
+			attached(sequencer);
+		}
+		tracks.setInput(sequenceInfo);
+		showPlayback();
 		layoutColumns();
 		setMinSize(content.computeSize(SWT.DEFAULT, SWT.DEFAULT));
 	}
 
-	public void reload() throws InvalidMidiDataException, IOException {
-		setFile(getFile());
+	private void loadFailed(IFile loadedFile, Exception exception) {
+		if (isDisposed() || !loadedFile.equals(file)) {
+			return;
+		}
+		Activator.logError("Can't load MIDI file " + loadedFile.getName(), exception);
+		if (compactSequence == null) {
+			showPlaceholder(MessageFormat.format("Can''t load {0}: {1}", loadedFile.getName(), exception.getLocalizedMessage()));
+			setMinSize(content.computeSize(SWT.DEFAULT, SWT.DEFAULT));
+		}
+	}
+
+	private void showPlaceholder(String text) {
+		placeholder.setText(text);
+		setVisible(placeholder, true);
+		setVisible(playbackControl, false);
+		setVisible(tracks.getTable(), false);
+		content.layout();
+	}
+
+	private void showPlayback() {
+		setVisible(placeholder, false);
+		setVisible(playbackControl, true);
+		setVisible(tracks.getTable(), true);
+	}
+
+	private static void setVisible(Control control, boolean visible) {
+		control.setVisible(visible);
+		((GridData)control.getLayoutData()).exclude = !visible;
 	}
 
 	public void closeFile() {
+		loadGeneration.advance();
+		overviewGeneration.advance();
+		sequenceGeneration.advance();
 		playbackControl.pause();
-		sequencer.close();
+		engine.detach(this);
 		content.dispose();
 		this.dispose();
 	}
@@ -103,10 +287,281 @@ public class MidiViewPage extends ScrolledComposite {
 		playbackControl.pause();
 	}
 
+	/**
+	 * Returns the playback position in microseconds.
+	 */
+	public long getPosition() {
+		return playbackControl.getPosition();
+	}
+
+	/**
+	 * Sets the playback position in microseconds, also before the file is
+	 * loaded.
+	 */
+	public void setPosition(long position) {
+		playbackControl.setPosition((int)Math.min(Integer.MAX_VALUE, position));
+	}
+
 	public void togglePlayback() {
 		playbackControl.togglePlayback();
 	}
 
+	// Playback
+
+	/**
+	 * The events of the open MIDI file.
+	 */
+	private CompactSequence compactSequence;
+
+	/**
+	 * The sequence with message objects set on the sequencer, built in the
+	 * background when the page is attached and released when it is detached,
+	 * so that pages in the background only keep their compact sequence.
+	 */
+	private Sequence sequence;
+
+	/**
+	 * The track metadata of the sequence, computed when it is loaded.
+	 */
+	private SequenceInfo sequenceInfo;
+
+	/**
+	 * The controller, program and pitch bend snapshots of the sequence used
+	 * for seeking.
+	 */
+	private ChaseIndex chaseIndex;
+
+	/**
+	 * The locations of the notes in the source file, read by the playback
+	 * position tracker.
+	 */
+	private volatile ScoreMap scoreMap;
+
+	private final Set<Integer> mutedTracks = new HashSet<>();
+
+	private final Set<Integer> soloTracks = new HashSet<>();
+
+	private float tempoFactor = 1;
+
+	public SequenceInfo getSequenceInfo() {
+		return sequenceInfo;
+	}
+
+	/**
+	 * Returns the locations of the notes in the source file, or
+	 * <code>null</code> if they are not known.
+	 */
+	public ScoreMap getScoreMap() {
+		return scoreMap;
+	}
+
+	/**
+	 * Returns the shared sequencer, attaching this page to it if necessary.
+	 */
+	public Sequencer getSequencer() throws MidiUnavailableException, InvalidMidiDataException {
+		return engine.attach(this);
+	}
+
+	/**
+	 * Returns the shared sequencer if this page is attached to it, otherwise
+	 * <code>null</code>.
+	 */
+	public Sequencer getAttachedSequencer() {
+		return engine.getSequencer(this);
+	}
+
+	/**
+	 * Makes this page the one which is played by the shared sequencer. Does
+	 * nothing while the MIDI file is being loaded, so that the UI thread never
+	 * waits for the sequencer to be opened.
+	 */
+	public void attach() throws MidiUnavailableException, InvalidMidiDataException {
+		if (compactSequence != null) {
+			getSequencer();
+		}
+	}
+
+	/**
+	 * Called by the playback engine when this page is attached to the
+	 * sequencer. Builds the sequence in the background, then sets it on the
+	 * sequencer and restores the playback settings of this page.
+	 */
+	void attached(final Sequencer sequencer) {
+		if (compactSequence == null) {
+			// Not loaded yet, the sequence is set when loading is finished
+			return;
+		}
+		final CompactSequence attachedSequence = compactSequence;
+		sequenceGeneration.advance();
+		SCHEDULER.schedule(Lane.FOREGROUND, sequenceGeneration, new Task<Sequence>() {
+
+			@Override
+			public Sequence run(IProgressMonitor monitor) throws InvalidMidiDataException {
+				return attachedSequence.toSequence();
+			}
+
+			@Override
+			public void apply(Sequence builtSequence) {
+				if (!isDisposed() && attachedSequence == compactSequence && getAttachedSequencer() == sequencer) {
+					sequenceBuilt(sequencer, builtSequence);
+				}
+			}
+
+			@Override
+			public void failed(Exception exception) {
+				Activator.logError("Can't play MIDI file " + file.getName(), exception);
+			}
+
+		});
+	}
+
+	private void sequenceBuilt(Sequencer sequencer, Sequence builtSequence) {
+		try {
+			sequencer.setSequence(builtSequence);
+		} catch (InvalidMidiDataException e) {
+			Activator.logError("Can't play MIDI file " + file.getName(), e);
+			return;
+		}
+		sequence = builtSequence;
+		for (int i = 0; i < sequence.getTracks().length; i++) {
+			sequencer.setTrackMute(i, mutedTracks.contains(i));
+			sequencer.setTrackSolo(i, soloTracks.contains(i));
+		}
+		sequencer.setTempoFactor(tempoFactor);
+		playbackControl.attached(sequencer);
+	}
+
+	/**
+	 * Returns whether the sequence of this page is set on the sequencer, so
+	 * that it can be played.
+	 */
+	public boolean isSequenceSet() {
+		return sequence != null;
+	}
+
+	/**
+	 * Called by the playback engine when another page is attached to the
+	 * sequencer or this page is closed. Releases the sequence, which is built
+	 * again when the page is attached the next time.
+	 */
+	void detached(Sequencer sequencer) {
+		sequenceGeneration.advance();
+		playbackControl.pause();
+		if (sequence != null) {
+			sequence = null;
+			try {
+				sequencer.setSequence((Sequence)null);
+			} catch (InvalidMidiDataException e) {
+				Activator.logError("Can't release MIDI sequence", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the tick of the sequence reached after the given duration.
+	 */
+	public long getTick(long microseconds) {
+		return compactSequence.getTick(microseconds);
+	}
+
+	/**
+	 * Returns the tempo map of the open MIDI file, or <code>null</code> while
+	 * it is being loaded.
+	 */
+	public TempoMap getTempoMap() {
+		return compactSequence == null ? null : compactSequence.getTempoMap();
+	}
+
+	/**
+	 * Moves the given sequencer to the given position and sends the
+	 * controllers, programs and pitch bends in effect there to its receivers.
+	 * They are looked up in the chase index, so playback resumes with the
+	 * right sounds without scanning the sequence from its start.
+	 */
+	void seek(Sequencer sequencer, long microseconds) {
+		if (sequence == null) {
+			return;
+		}
+		long tick = getTick(microseconds);
+		sequencer.setTickPosition(tick);
+		ChaseState state = chaseIndex.getState(tick);
+		for (Transmitter transmitter : sequencer.getTransmitters()) {
+			Receiver receiver = transmitter.getReceiver();
+			if (receiver != null) {
+				try {
+					state.send(receiver);
+				} catch (InvalidMidiDataException e) {
+					Activator.logError("Can't restore MIDI controllers", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the events of the open MIDI file, or <code>null</code> while it
+	 * is being loaded.
+	 */
+	public CompactSequence getCompactSequence() {
+		return compactSequence;
+	}
+
+	/**
+	 * Returns which tracks are played according to their mute and solo
+	 * settings.
+	 */
+	public boolean[] getPlayedTracks() {
+		boolean[] result = new boolean[sequenceInfo.getTracks().length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = soloTracks.isEmpty() ? !mutedTracks.contains(i) : soloTracks.contains(i);
+		}
+		return result;
+	}
+
+	private boolean isTrackMuted(int trackNumber) {
+		return mutedTracks.contains(trackNumber);
+	}
+
+	private void setTrackMuted(int trackNumber, boolean muted) {
+		if (muted) {
+			mutedTracks.add(trackNumber);
+		} else {
+			mutedTracks.remove(trackNumber);
+		}
+		Sequencer sequencer = getAttachedSequencer();
+		if (sequencer != null) {
+			sequencer.setTrackMute(trackNumber, muted);
+		}
+	}
+
+	private boolean isTrackSolo(int trackNumber) {
+		return soloTracks.contains(trackNumber);
+	}
+
+	private void setTrackSolo(int trackNumber, boolean solo) {
+		if (solo) {
+			soloTracks.add(trackNumber);
+		} else {
+			soloTracks.remove(trackNumber);
+		}
+		Sequencer sequencer = getAttachedSequencer();
+		if (sequencer != null) {
+			sequencer.setTrackSolo(trackNumber, solo);
+		}
+	}
+
+	public float getTempoFactor() {
+		return tempoFactor;
+	}
+
+	public void setTempoFactor(float tempoFactor) {
+		this.tempoFactor = tempoFactor;
+		Sequencer sequencer = getAttachedSequencer();
+		if (sequencer != null) {
+			sequencer.setTempoFactor(tempoFactor);
+		}
+		playbackControl.tempoFactorChanged();
+	}
+
 	// Tracks
 
 	private TableViewer tracks;
@@ -155,8 +610,8 @@ public class MidiViewPage extends ScrolledComposite {
 		NAME("Track name", "Name.png") { //$NON-NLS-2$
 
 			@Override
-			public String getColumnText(Sequencer sequencer, Track track) {
-				String result = MidiUtils.getTrackName(track);
+			public String getColumnText(MidiViewPage page, TrackInfo track) {
+				String result = track.getName();
 				return ((result == null) || result.isEmpty() ? "(untitled)" : result);
 			}
 
@@ -166,20 +621,20 @@ public class MidiViewPage extends ScrolledComposite {
 			}
 
 			@Override
-			public Object getValue(Sequencer sequencer, int trackNumber) {
+			public Object getValue(MidiViewPage page, int trackNumber) {
 				return null;
 			}
 
 			@Override
-			public void setValue(Sequencer sequencer, int trackNumber, Object value) {
+			public void setValue(MidiViewPage page, int trackNumber, Object value) {
 			}
 
 		},
 		MUTE("Mute", "Mute.png") { //$NON-NLS-2$
 
 			@Override
-			public String getColumnText(Sequencer sequencer, Track track) {
-				return getCheckLabel(sequencer, track);
+			public String getColumnText(MidiViewPage page, TrackInfo track) {
+				return getCheckLabel(page, track);
 			}
 
 			@Override
@@ -188,21 +643,21 @@ public class MidiViewPage extends ScrolledComposite {
 			}
 
 			@Override
-			public Object getValue(Sequencer sequencer, int trackNumber) {
-				return sequencer.getTrackMute(trackNumber);
+			public Object getValue(MidiViewPage page, int trackNumber) {
+				return page.isTrackMuted(trackNumber);
 			}
 
 			@Override
-			public void setValue(Sequencer sequencer, int trackNumber, Object value) {
-				sequencer.setTrackMute(trackNumber, (Boolean)value);
+			public void setValue(MidiViewPage page, int trackNumber, Object value) {
+				page.setTrackMuted(trackNumber, (Boolean)value);
 			}
 
 		},
 		SOLO("Solo", "Solo.png") { //$NON-NLS-2$
 
 			@Override
-			public String getColumnText(Sequencer sequencer, Track track) {
-				return getCheckLabel(sequencer, track);
+			public String getColumnText(MidiViewPage page, TrackInfo track) {
+				return getCheckLabel(page, track);
 			}
 
 			@Override
@@ -211,13 +666,13 @@ public class MidiViewPage extends ScrolledComposite {
 			}
 
 			@Override
-			public Object getValue(Sequencer sequencer, int trackNumber) {
-				return sequencer.getTrackSolo(trackNumber);
+			public Object getValue(MidiViewPage page, int trackNumber) {
+				return page.isTrackSolo(trackNumber);
 			}
 
 			@Override
-			public void setValue(Sequencer sequencer, int trackNumber, Object value) {
-				sequencer.setTrackSolo(trackNumber, (Boolean)value);
+			public void setValue(MidiViewPage page, int trackNumber, Object value) {
+				page.setTrackSolo(trackNumber, (Boolean)value);
 			}
 
 		};
@@ -231,16 +686,16 @@ public class MidiViewPage extends ScrolledComposite {
 
 		private final String iconFilename;
 
-		public abstract String getColumnText(Sequencer sequencer, Track track);
+		public abstract String getColumnText(MidiViewPage page, TrackInfo track);
 
 		public abstract CellEditor getCellEditor(Composite parent);
 
-		public abstract Object getValue(Sequencer sequencer, int trackNumber);
+		public abstract Object getValue(MidiViewPage page, int trackNumber);
 
-		public abstract void setValue(Sequencer sequencer, int trackNumber, Object value);
+		public abstract void setValue(MidiViewPage page, int trackNumber, Object value);
 
-		protected String getCheckLabel(Sequencer sequencer, Track track) { // XXX workaround for https://bugs.eclipse.org/bugs/show_bug.cgi?id=285121
-			return (Boolean)getValue(sequencer, MidiUtils.getTrackNumber(sequencer, track)) ? "✓" : "";
+		protected String getCheckLabel(MidiViewPage page, TrackInfo track) { // XXX workaround for https://bugs.eclipse.org/bugs/show_bug.cgi?id=285121
+			return (Boolean)getValue(page, track.getIndex()) ? "✓" : "";
 		}
 
 	}
@@ -249,7 +704,7 @@ public class MidiViewPage extends ScrolledComposite {
 
 		@Override
 		public Object[] getElements(Object inputElement) {
-			return ((Sequence)inputElement).getTracks();
+			return ((SequenceInfo)inputElement).getTracks();
 		}
 
 		@Override
@@ -266,7 +721,7 @@ public class MidiViewPage extends ScrolledComposite {
 
 		@Override
 		public String getColumnText(Object element, int columnIndex) {
-			return TrackColumn.values()[columnIndex].getColumnText(sequencer, (Track)element);
+			return TrackColumn.values()[columnIndex].getColumnText(MidiViewPage.this, (TrackInfo)element);
 		}
 
 		@Override
@@ -302,14 +757,14 @@ public class MidiViewPage extends ScrolledComposite {
 
 		@Override
 		protected Object getValue(Object element) {
-			int trackNumber = MidiUtils.getTrackNumber(sequencer, (Track)element);
-			return column.getValue(sequencer, trackNumber);
+			int trackNumber = ((TrackInfo)element).getIndex();
+			return column.getValue(MidiViewPage.this, trackNumber);
 		}
 
 		@Override
 		protected void setValue(Object element, Object value) {
-			int trackNumber = MidiUtils.getTrackNumber(sequencer, (Track)element);
-			column.setValue(sequencer, trackNumber, value);
+			int trackNumber = ((TrackInfo)element).getIndex();
+			column.setValue(MidiViewPage.this, trackNumber, value);
 			getViewer().update(element, null);
 			maybeToggleOtherColumn(element, value);
 		}
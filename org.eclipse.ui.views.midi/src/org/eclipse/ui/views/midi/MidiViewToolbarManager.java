@@ -1,6 +1,14 @@
 package org.eclipse.ui.views.midi;
 
+import java.io.File;
+
+import javax.util.midi.MidiRenderer;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.ActionContributionItem;
 import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.FileDialog;
 
 public class MidiViewToolbarManager {
 
@@ -14,10 +22,41 @@ public class MidiViewToolbarManager {
 		return page;
 	}
 
-	private final IContributionItem[] contributions = new IContributionItem[] {};
+	private final IContributionItem[] contributions = new IContributionItem[] {
+		new ActionContributionItem(new ExportWaveAction())
+	};
 
 	public IContributionItem[] getToolbarContributions() {
 		return contributions;
 	}
 
+	private class ExportWaveAction extends Action {
+
+		public ExportWaveAction() {
+			setImageDescriptor(Activator.getImageDescriptor(MidiViewPage.ICON_PATH + "Volume.png")); //$NON-NLS-1$
+			if (MidiRenderer.isSupported()) {
+				setToolTipText("Export to WAV File");
+			} else {
+				setToolTipText("Export to WAV File (needs --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED in the VM arguments)");
+				setEnabled(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			if (page == null || page.getCompactSequence() == null) {
+				return;
+			}
+			FileDialog dialog = new FileDialog(page.getShell(), SWT.SAVE);
+			dialog.setFilterExtensions(new String[] { "*.wav" }); //$NON-NLS-1$
+			dialog.setFileName(page.getFile().getFullPath().removeFileExtension().addFileExtension("wav").lastSegment()); //$NON-NLS-1$
+			dialog.setOverwrite(true);
+			String path = dialog.open();
+			if (path != null) {
+				new MidiRenderJob(page.getCompactSequence(), page.getPlayedTracks(), new File(path)).schedule();
+			}
+		}
+
+	}
+
 }
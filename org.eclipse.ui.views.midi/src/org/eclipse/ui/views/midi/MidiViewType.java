@@ -1,14 +1,22 @@
 package org.eclipse.ui.views.midi;
 
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiUnavailableException;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.ui.part.PageBook;
-import org.eclipse.ui.views.file.IFileViewType;
+import org.eclipse.ui.views.file.IPersistentFileViewType;
 
-public class MidiViewType implements IFileViewType<MidiViewPage> {
+public class MidiViewType implements IPersistentFileViewType<MidiViewPage> {
 
 	public static final String EXTENSION = "midi"; //$NON-NLS-1$
 
+	private static final String POSITION = "position"; //$NON-NLS-1$
+
+	private static final String TEMPO_FACTOR = "tempoFactor"; //$NON-NLS-1$
+
 	@Override
 	public MidiViewPage createPage(PageBook pageBook, IFile file) throws Exception {
 		return new MidiViewPage(pageBook, file);
@@ -36,6 +44,11 @@ public class MidiViewType implements IFileViewType<MidiViewPage> {
 		if ((getPage() != null) && (page != getPage())) {
 			getPage().pause();
 		}
+		try {
+			page.attach();
+		} catch (MidiUnavailableException | InvalidMidiDataException e) {
+			Activator.logError("Can't attach MIDI file to the sequencer", e);
+		}
 		setPage(page);
 		toolbar.setPage(page);
 	}
@@ -62,6 +75,22 @@ public class MidiViewType implements IFileViewType<MidiViewPage> {
 		}
 	}
 
+	@Override
+	public void savePageState(MidiViewPage page, IDialogSettings settings) {
+		settings.put(POSITION, page.getPosition());
+		settings.put(TEMPO_FACTOR, page.getTempoFactor());
+	}
+
+	@Override
+	public void restorePageState(MidiViewPage page, IDialogSettings settings) {
+		try {
+			page.setPosition(settings.getLong(POSITION));
+			page.setTempoFactor(settings.getFloat(TEMPO_FACTOR));
+		} catch (NumberFormatException e) {
+			// No state saved
+		}
+	}
+
 	@Override
 	public IFile getFile(IFile sourceFile) {
 		return sourceFile;
@@ -0,0 +1,124 @@
+package org.eclipse.ui.views.midi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.util.midi.CompactSequence;
+import javax.util.midi.CompactTrack;
+import javax.util.midi.NoteDensityMap;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Caches the note density maps of the recently viewed MIDI files. A map is
+ * reused while the file's size and modification time are unchanged. When the
+ * file changes, only the densities of the tracks whose notes changed are
+ * computed again.
+ */
+class NoteDensityCache {
+
+	private static final int MAX_FILES = 8;
+
+	/**
+	 * The densities of a track, with the track to verify that a track with
+	 * the same hash code has the same notes.
+	 */
+	private static class TrackDensities {
+
+		private final CompactTrack track;
+
+		private final byte[] densities;
+
+		TrackDensities(CompactTrack track, byte[] densities) {
+			this.track = track;
+			this.densities = densities;
+		}
+
+	}
+
+	private static class CacheEntry {
+
+		private long length;
+
+		private long lastModified;
+
+		private long tickLength;
+
+		/**
+		 * The densities of the tracks by the hash code of their notes.
+		 */
+		private Map<Integer, TrackDensities> trackDensities;
+
+		private NoteDensityMap densityMap;
+
+	}
+
+	private static final Map<String, CacheEntry> ENTRIES = new LinkedHashMap<String, CacheEntry>(MAX_FILES, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, CacheEntry> eldest) {
+			return size() > MAX_FILES;
+		}
+
+	};
+
+	private NoteDensityCache() {
+	}
+
+	/**
+	 * Returns the note density map of the given sequence read from the given
+	 * file, or <code>null</code> if the monitor is cancelled.
+	 */
+	static NoteDensityMap get(File file, CompactSequence sequence, IProgressMonitor monitor) {
+		String key = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		long tickLength = sequence.getTickLength();
+		CacheEntry previous;
+		synchronized (ENTRIES) {
+			previous = ENTRIES.get(key);
+		}
+		if (previous != null && previous.length == length && previous.lastModified == lastModified && previous.tickLength == tickLength) {
+			return previous.densityMap;
+		}
+		Map<Integer, TrackDensities> reusableDensities = previous != null && previous.tickLength == tickLength ? previous.trackDensities : new HashMap<Integer, TrackDensities>();
+		CompactTrack[] tracks = sequence.getTracks();
+		SubMonitor progress = SubMonitor.convert(monitor, tracks.length);
+		CacheEntry entry = new CacheEntry();
+		entry.length = length;
+		entry.lastModified = lastModified;
+		entry.tickLength = tickLength;
+		entry.trackDensities = new HashMap<Integer, TrackDensities>();
+		List<byte[]> densities = new ArrayList<byte[]>();
+		for (CompactTrack track : tracks) {
+			if (progress.isCanceled()) {
+				return null;
+			}
+			int hashCode = track.getShortMessagesHashCode();
+			TrackDensities reusable = reusableDensities.get(hashCode);
+			byte[] trackDensities;
+			if (reusable != null && reusable.track.hasSameShortMessages(track)) {
+				trackDensities = reusable.densities;
+			} else {
+				trackDensities = NoteDensityMap.computeTrackDensities(track, tickLength);
+			}
+			entry.trackDensities.put(hashCode, new TrackDensities(track, trackDensities));
+			densities.add(trackDensities);
+			progress.worked(1);
+		}
+		entry.densityMap = new NoteDensityMap(densities);
+		synchronized (ENTRIES) {
+			ENTRIES.put(key, entry);
+		}
+		return entry.densityMap;
+	}
+
+}
@@ -0,0 +1,201 @@
+package org.eclipse.ui.views.midi;
+
+import javax.util.midi.NoteDensityMap;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.events.MouseAdapter;
+import org.eclipse.swt.events.MouseEvent;
+import org.eclipse.swt.events.MouseMoveListener;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * Shows an overview of the notes of a MIDI file and the playback position.
+ * Clicking or dragging seeks to the position under the mouse. The image of
+ * the notes is created from the level of the density map matching the width
+ * of the widget, and recreated only when another level is needed.
+ */
+class PianoRoll extends Canvas {
+
+	private final MidiPlaybackControl playbackControl;
+
+	private NoteDensityMap densityMap;
+
+	private Image image;
+
+	private int imageLevel = -1;
+
+	/**
+	 * The playback position as a fraction of the length of the sequence.
+	 */
+	private double position;
+
+	private boolean dragging;
+
+	/**
+	 * The loop region as fractions of the length of the sequence, -1 if not
+	 * set.
+	 */
+	private double loopStart = -1;
+
+	private double loopEnd = -1;
+
+	PianoRoll(Composite parent, MidiPlaybackControl playbackControl) {
+		super(parent, SWT.DOUBLE_BUFFERED);
+		this.playbackControl = playbackControl;
+		addPaintListener(new PaintListener() {
+
+			@Override
+			public void paintControl(PaintEvent e) {
+				paint(e.gc);
+			}
+
+		});
+		addMouseListener(new MouseAdapter() {
+
+			@Override
+			public void mouseDown(MouseEvent e) {
+				dragging = true;
+				seek(e.x);
+			}
+
+			@Override
+			public void mouseUp(MouseEvent e) {
+				dragging = false;
+			}
+
+		});
+		addMouseMoveListener(new MouseMoveListener() {
+
+			@Override
+			public void mouseMove(MouseEvent e) {
+				if (dragging) {
+					seek(e.x);
+				}
+			}
+
+		});
+		addDisposeListener(new DisposeListener() {
+
+			@Override
+			public void widgetDisposed(DisposeEvent e) {
+				disposeImage();
+			}
+
+		});
+	}
+
+	void setDensityMap(NoteDensityMap densityMap) {
+		this.densityMap = densityMap;
+		disposeImage();
+		redraw();
+	}
+
+	void setLoopRegion(double loopStart, double loopEnd) {
+		this.loopStart = loopStart;
+		this.loopEnd = loopEnd;
+		redraw();
+	}
+
+	void setPosition(double position) {
+		int width = getClientArea().width;
+		int oldX = getX(this.position, width);
+		int newX = getX(position, width);
+		this.position = position;
+		if (oldX != newX) {
+			int height = getClientArea().height;
+			redraw(oldX - 1, 0, 3, height, false);
+			redraw(newX - 1, 0, 3, height, false);
+		}
+	}
+
+	private static int getX(double position, int width) {
+		return (int)Math.round(position * (width - 1));
+	}
+
+	private void seek(int x) {
+		int width = getClientArea().width;
+		if (width > 1) {
+			playbackControl.seek(Math.max(0, Math.min(1, x / (double)(width - 1))));
+		}
+	}
+
+	private void paint(GC gc) {
+		Rectangle area = getClientArea();
+		gc.setBackground(getDisplay().getSystemColor(SWT.COLOR_LIST_BACKGROUND));
+		gc.fillRectangle(area);
+		if (densityMap != null && densityMap.getHighestNote() >= 0 && area.width > 0 && area.height > 0) {
+			int level = densityMap.getLevel(area.width);
+			if (image == null || imageLevel != level) {
+				disposeImage();
+				image = createImage(level);
+				imageLevel = level;
+			}
+			Rectangle bounds = image.getBounds();
+			gc.drawImage(image, 0, 0, bounds.width, bounds.height, 0, 0, area.width, area.height);
+		}
+		if (loopStart >= 0) {
+			int startX = getX(loopStart, area.width);
+			int endX = getX(loopEnd, area.width);
+			gc.setBackground(getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN));
+			gc.setAlpha(48);
+			gc.fillRectangle(startX, 0, endX - startX + 1, area.height);
+			gc.setAlpha(255);
+			gc.setForeground(getDisplay().getSystemColor(SWT.COLOR_DARK_GREEN));
+			gc.drawLine(startX, 0, startX, area.height);
+			gc.drawLine(endX, 0, endX, area.height);
+		}
+		gc.setForeground(getDisplay().getSystemColor(SWT.COLOR_RED));
+		int x = getX(position, area.width);
+		gc.drawLine(x, 0, x, area.height);
+	}
+
+	private Image createImage(int level) {
+		int lowestNote = densityMap.getLowestNote();
+		int highestNote = densityMap.getHighestNote();
+		int slices = densityMap.getSlices(level);
+		int keys = highestNote - lowestNote + 1;
+		RGB background = getDisplay().getSystemColor(SWT.COLOR_LIST_BACKGROUND).getRGB();
+		Color foregroundColor = getDisplay().getSystemColor(SWT.COLOR_LIST_SELECTION);
+		RGB foreground = foregroundColor.getRGB();
+		RGB[] colors = new RGB[256];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = new RGB(blend(background.red, foreground.red, i), blend(background.green, foreground.green, i), blend(background.blue, foreground.blue, i));
+		}
+		ImageData data = new ImageData(slices, keys, 8, new PaletteData(colors));
+		byte[] row = new byte[slices];
+		for (int y = 0; y < keys; y++) {
+			// High notes at the top
+			int key = highestNote - y;
+			for (int slice = 0; slice < slices; slice++) {
+				row[slice] = (byte)densityMap.getDensity(level, slice, key);
+			}
+			data.setPixels(0, y, slices, row, 0);
+		}
+		return new Image(getDisplay(), data);
+	}
+
+	private static int blend(int from, int to, int amount) {
+		return from + (to - from) * amount / 255;
+	}
+
+	private void disposeImage() {
+		if (image != null) {
+			image.dispose();
+			image = null;
+			imageLevel = -1;
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package org.eclipse.ui.views.midi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the ticks of a MIDI file to the locations of the notes in the LilyPond
+ * source file it was compiled from. The map is read from the
+ * <code>.notes</code> files written by LilyPond's
+ * <code>event-listener.ly</code> next to the MIDI file, whose lines start
+ * with the moment of the event in whole notes and contain a
+ * <code>point-and-click &lt;column&gt; &lt;line&gt; [&lt;file&gt;]</code>
+ * column. Notes without a file name are mapped to the LilyPond file named like
+ * the MIDI file, so that notes of <code>\include</code>d files are only mapped
+ * correctly if the listener records their file names.
+ * <p>
+ * The notes are stored in primitive arrays sorted by tick, so that looking up
+ * the note at the playback position doesn't allocate memory.
+ */
+public class ScoreMap {
+
+	private static final String NOTES_EXTENSION = ".notes"; //$NON-NLS-1$
+
+	private static final String SOURCE_EXTENSION = ".ly"; //$NON-NLS-1$
+
+	private static final String POINT_AND_CLICK = "point-and-click "; //$NON-NLS-1$
+
+	private static final String NOTE = "note"; //$NON-NLS-1$
+
+	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/**
+	 * The distinct source files of the notes.
+	 */
+	private final URI[] sourceFiles;
+
+	private final long[] ticks;
+
+	private final int[] sourceFileIndices;
+
+	private final int[] lineNumbers;
+
+	private final int[] columnNumbers;
+
+	private ScoreMap(URI[] sourceFiles, long[] ticks, int[] sourceFileIndices, int[] lineNumbers, int[] columnNumbers) {
+		this.sourceFiles = sourceFiles;
+		this.ticks = ticks;
+		this.sourceFileIndices = sourceFileIndices;
+		this.lineNumbers = lineNumbers;
+		this.columnNumbers = columnNumbers;
+	}
+
+	/**
+	 * Reads the score map of the given MIDI file with the given resolution in
+	 * ticks per quarter note. Returns <code>null</code> if there are no
+	 * <code>.notes</code> files for it.
+	 */
+	public static ScoreMap load(File midiFile, int resolution) throws IOException {
+		String name = midiFile.getName();
+		int extensionIndex = name.lastIndexOf('.');
+		final String baseName = extensionIndex < 0 ? name : name.substring(0, extensionIndex);
+		File directory = midiFile.getAbsoluteFile().getParentFile();
+		File[] notesFiles = directory.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String fileName) {
+				return fileName.startsWith(baseName + '-') && fileName.endsWith(NOTES_EXTENSION);
+			}
+
+		});
+		if (notesFiles == null || notesFiles.length == 0) {
+			return null;
+		}
+		List<long[]> notes = new ArrayList<long[]>();
+		List<URI> sourceFiles = new ArrayList<URI>();
+		Map<String, Integer> sourceFileIndices = new HashMap<String, Integer>();
+		// Notes without a file name refer to the main source file
+		sourceFiles.add(new File(directory, baseName + SOURCE_EXTENSION).toURI().normalize());
+		for (File notesFile : notesFiles) {
+			readNotes(notesFile, resolution, directory, notes, sourceFiles, sourceFileIndices);
+		}
+		Collections.sort(notes, new Comparator<long[]>() {
+
+			@Override
+			public int compare(long[] note1, long[] note2) {
+				return Long.compare(note1[0], note2[0]);
+			}
+
+		});
+		long[] ticks = new long[notes.size()];
+		int[] noteSourceFileIndices = new int[notes.size()];
+		int[] lineNumbers = new int[notes.size()];
+		int[] columnNumbers = new int[notes.size()];
+		for (int i = 0; i < ticks.length; i++) {
+			long[] note = notes.get(i);
+			ticks[i] = note[0];
+			lineNumbers[i] = (int)note[1];
+			columnNumbers[i] = (int)note[2];
+			noteSourceFileIndices[i] = (int)note[3];
+		}
+		return new ScoreMap(sourceFiles.toArray(new URI[sourceFiles.size()]), ticks, noteSourceFileIndices, lineNumbers, columnNumbers);
+	}
+
+	private static void readNotes(File notesFile, int resolution, File directory, List<long[]> notes, List<URI> sourceFiles, Map<String, Integer> sourceFileIndices) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(notesFile), UTF8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] columns = line.split("\t"); //$NON-NLS-1$
+				if (columns.length < 2 || !NOTE.equals(columns[1])) {
+					continue;
+				}
+				for (String column : columns) {
+					if (column.startsWith(POINT_AND_CLICK)) {
+						try {
+							String[] location = column.substring(POINT_AND_CLICK.length()).trim().split(" ", 3); //$NON-NLS-1$
+							long tick = Math.round(Double.parseDouble(columns[0]) * 4 * resolution);
+							int sourceFileIndex = location.length > 2 ? getSourceFileIndex(directory, location[2], sourceFiles, sourceFileIndices) : 0;
+							// Source lines are one-based, like in textedit hyperlinks
+							notes.add(new long[] { tick, Integer.parseInt(location[1]) - 1, Integer.parseInt(location[0]), sourceFileIndex });
+						} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+							// Grace notes and malformed lines can't be mapped
+						}
+						break;
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the index of the given source file in the list of source files,
+	 * adding it if necessary. Relative file names are resolved against the
+	 * directory of the MIDI file.
+	 */
+	private static int getSourceFileIndex(File directory, String fileName, List<URI> sourceFiles, Map<String, Integer> sourceFileIndices) {
+		Integer index = sourceFileIndices.get(fileName);
+		if (index == null) {
+			File sourceFile = new File(fileName);
+			if (!sourceFile.isAbsolute()) {
+				sourceFile = new File(directory, fileName);
+			}
+			index = sourceFiles.size();
+			sourceFiles.add(sourceFile.toURI().normalize());
+			sourceFileIndices.put(fileName, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the source file of the note with the given index.
+	 */
+	public URI getSourceFile(int noteIndex) {
+		return sourceFiles[sourceFileIndices[noteIndex]];
+	}
+
+	/**
+	 * Returns the index of the last note starting at or before the given tick,
+	 * or -1 if there is none.
+	 */
+	public int getNoteIndex(long tick) {
+		int index = Arrays.binarySearch(ticks, tick);
+		if (index < 0) {
+			return -index - 2;
+		}
+		// The last of the notes starting at the same tick
+		while (index + 1 < ticks.length && ticks[index + 1] == tick) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the zero-based line number of the note with the given index.
+	 */
+	public int getLineNumber(int noteIndex) {
+		return lineNumbers[noteIndex];
+	}
+
+	public int getColumnNumber(int noteIndex) {
+		return columnNumbers[noteIndex];
+	}
+
+}
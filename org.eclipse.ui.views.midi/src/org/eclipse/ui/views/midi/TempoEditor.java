@@ -2,8 +2,6 @@ package org.eclipse.ui.views.midi;
 
 import java.text.MessageFormat;
 
-import javax.sound.midi.Sequencer;
-
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
@@ -32,7 +30,7 @@ public class TempoEditor extends Composite {
 		slider.setSelection(value);
 		displayer.setText(displayTempo(computeTempoFactor(value)));
 		if (callback) {
-			sequencer.setTempoFactor(computeTempoFactor(value));
+			page.setTempoFactor(computeTempoFactor(value));
 		}
 	}
 
@@ -58,11 +56,11 @@ public class TempoEditor extends Composite {
 	private final Label displayer;
 	private final Button resetter;
 
-	private final Sequencer sequencer;
+	private final MidiViewPage page;
 
-	public TempoEditor(Composite parent, Sequencer sequencer) {
+	public TempoEditor(Composite parent, MidiViewPage page) {
 		super(parent, SWT.NONE);
-		this.sequencer = sequencer;
+		this.page = page;
 		setLayout(new GridLayout(4, false));
 
 		Label header = new Label(this, SWT.NONE);
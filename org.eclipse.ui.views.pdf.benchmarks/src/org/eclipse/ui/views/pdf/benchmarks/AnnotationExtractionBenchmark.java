@@ -0,0 +1,48 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.views.pdf.PdfAnnotation;
+import org.eclipse.ui.views.pdf.PdfFileUtils;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationExtractor;
+import org.jpedal.PdfDecoder;
+import org.jpedal.exception.PdfException;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Extracts the point-and-click annotations of a score, page by page with an
+ * open decoder like the view, and for the whole file like the index job.
+ */
+public class AnnotationExtractionBenchmark extends PdfBenchmark {
+
+	private PdfDecoder pdfDecoder;
+
+	private ImageInputStream pdfInput;
+
+	@Override
+	protected void open() throws Exception {
+		pdfDecoder = new PdfDecoder();
+		pdfInput = PdfFileUtils.openPdfInput(pdfDecoder, corpus.getPdfFile());
+	}
+
+	@Override
+	protected void close() {
+		pdfDecoder.closePdfFile();
+		PdfFileUtils.closePdfInput(pdfInput);
+	}
+
+	@Benchmark
+	public List<PdfAnnotation> extractPage() {
+		return PdfAnnotationExtractor.extractPage(pdfDecoder, nextPage(), null);
+	}
+
+	@Benchmark
+	public Map<Integer, List<PdfAnnotation>> extractFile() throws PdfException {
+		return PdfAnnotationExtractor.extract(corpus.getPdfFile(), new NullProgressMonitor());
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.awt.image.BufferedImage;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.util.ImageUtils;
+import org.eclipse.ui.views.pdf.PdfFileUtils;
+import org.jpedal.PdfDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Converts a rasterized page to SWT image data, the way the view does
+ * before it uploads the page image. The conversion depends on the size of the
+ * image only, so only one page is used.
+ */
+public class ImageConversionBenchmark extends PdfBenchmark {
+
+	@Param({ "1", "2" })
+	public float zoom;
+
+	private BufferedImage pageImage;
+
+	@Override
+	protected void open() throws Exception {
+		PdfDecoder pdfDecoder = new PdfDecoder();
+		ImageInputStream pdfInput = PdfFileUtils.openPdfInput(pdfDecoder, corpus.getPdfFile());
+		try {
+			pdfDecoder.setPageParameters(zoom, 1);
+			pageImage = pdfDecoder.getPageAsImage(1);
+		} finally {
+			pdfDecoder.closePdfFile();
+			PdfFileUtils.closePdfInput(pdfInput);
+		}
+	}
+
+	@Benchmark
+	public ImageData convertPageImage() {
+		return ImageUtils.convertBufferedImageToImageData(pageImage);
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark over a generated score with the given number of pages and
+ * point-and-click links per page. The score is written once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public abstract class PdfBenchmark {
+
+	@Param({ "1", "16" })
+	public int pageCount;
+
+	/**
+	 * From a sparse part to a dense piano score.
+	 */
+	@Param({ "20", "400" })
+	public int linksPerPage;
+
+	protected PdfCorpus corpus;
+
+	private File directory;
+
+	/**
+	 * The page used by the next invocation, cycling through all pages.
+	 */
+	private int page;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("pdf-benchmark").toFile(); //$NON-NLS-1$
+		corpus = PdfCorpus.write(directory, pageCount, linksPerPage);
+		open();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		close();
+		corpus.delete();
+		directory.delete();
+	}
+
+	/**
+	 * Prepares the benchmark after the score was written.
+	 */
+	protected void open() throws Exception {
+	}
+
+	/**
+	 * Releases the resources of the benchmark before the score is deleted.
+	 */
+	protected void close() throws Exception {
+	}
+
+	protected int nextPage() {
+		page = page % pageCount + 1;
+		return page;
+	}
+
+}
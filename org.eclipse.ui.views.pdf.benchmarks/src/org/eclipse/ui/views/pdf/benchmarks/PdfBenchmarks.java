@@ -0,0 +1,30 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the PDF benchmarks with the JMH command line. Unless another result
+ * format is requested, the results are written as JSON to
+ * <code>pdf-benchmarks.json</code>, so that runs before and after a change of
+ * the render path can be compared.
+ */
+public class PdfBenchmarks {
+
+	private static final String RESULT_FORMAT = "-rf"; //$NON-NLS-1$
+
+	private PdfBenchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		if (!arguments.contains(RESULT_FORMAT)) {
+			arguments.addAll(0, Arrays.asList(RESULT_FORMAT, "json", "-rff", "pdf-benchmarks.json")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+
+}
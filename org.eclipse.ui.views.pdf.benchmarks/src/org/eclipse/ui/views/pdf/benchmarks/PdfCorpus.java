@@ -0,0 +1,216 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates LilyPond-like scores: a source file and a PDF file whose pages
+ * show systems of staves with note heads, each covered by a point-and-click
+ * (textedit) link to its line in the source file, like the PDF files written
+ * by LilyPond.
+ */
+public class PdfCorpus {
+
+	private static final Charset ISOCHARSET = Charset.forName("ISO-8859-1"); //$NON-NLS-1$
+
+	private static final int PAGE_WIDTH = 595;
+
+	private static final int PAGE_HEIGHT = 842;
+
+	private static final int SYSTEMS_PER_PAGE = 10;
+
+	private static final int MARGIN = 50;
+
+	private static final float STAFF_SPACE = 7;
+
+	private final File sourceFile;
+
+	private final File pdfFile;
+
+	private final int pageCount;
+
+	private final int linksPerPage;
+
+	private PdfCorpus(File sourceFile, File pdfFile, int pageCount, int linksPerPage) {
+		this.sourceFile = sourceFile;
+		this.pdfFile = pdfFile;
+		this.pageCount = pageCount;
+		this.linksPerPage = linksPerPage;
+	}
+
+	/**
+	 * Writes a score with the given number of pages and links per page to the
+	 * given directory.
+	 */
+	public static PdfCorpus write(File directory, int pageCount, int linksPerPage) throws IOException {
+		PdfCorpus corpus = new PdfCorpus(new File(directory, "score.ly"), new File(directory, "score.pdf"), pageCount, linksPerPage); //$NON-NLS-1$ //$NON-NLS-2$
+		corpus.writeSource();
+		corpus.writePdf();
+		return corpus;
+	}
+
+	public File getSourceFile() {
+		return sourceFile;
+	}
+
+	public File getPdfFile() {
+		return pdfFile;
+	}
+
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * Returns the textedit URIs of all links, in page order.
+	 */
+	public List<String> getTexteditURIs() {
+		List<String> result = new ArrayList<String>(pageCount * linksPerPage);
+		for (int note = 0; note < pageCount * linksPerPage; note++) {
+			result.add(getTexteditURI(note));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the URI of the given note, which is on its own line in the
+	 * source file. The file URI is written the way LilyPond writes it, as
+	 * <code>textedit://</code> followed by the absolute path.
+	 */
+	private String getTexteditURI(int note) {
+		return "textedit://" + sourceFile.getAbsoluteFile().toURI().getRawPath() + ':' + (note + 1) + ":2:3"; //$NON-NLS-1$
+	}
+
+	/**
+	 * Deletes the files of the score.
+	 */
+	public void delete() {
+		sourceFile.delete();
+		pdfFile.delete();
+	}
+
+	private void writeSource() throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), ISOCHARSET);
+		try {
+			for (int note = 0; note < pageCount * linksPerPage; note++) {
+				writer.write("  c'4\n"); //$NON-NLS-1$
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	// PDF
+
+	/**
+	 * The byte offsets of the objects, indexed by object number.
+	 */
+	private final List<Integer> offsets = new ArrayList<Integer>();
+
+	private void writePdf() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		offsets.clear();
+		offsets.add(0);
+		write(output, "%PDF-1.4\n"); //$NON-NLS-1$
+		// Catalog 1, pages 2, then page, content and links per page
+		int objectsPerPage = 2 + linksPerPage;
+		writeObject(output, 1, "<< /Type /Catalog /Pages 2 0 R >>"); //$NON-NLS-1$
+		StringBuilder kids = new StringBuilder();
+		for (int page = 0; page < pageCount; page++) {
+			kids.append(3 + page * objectsPerPage).append(" 0 R "); //$NON-NLS-1$
+		}
+		writeObject(output, 2, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount + " >>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (int page = 0; page < pageCount; page++) {
+			writePage(output, page, 3 + page * objectsPerPage);
+		}
+		int xrefOffset = output.size();
+		StringBuilder xref = new StringBuilder();
+		xref.append("xref\n0 ").append(offsets.size()).append('\n'); //$NON-NLS-1$
+		xref.append("0000000000 65535 f \n"); //$NON-NLS-1$
+		for (int object = 1; object < offsets.size(); object++) {
+			xref.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets.get(object))); //$NON-NLS-1$
+		}
+		xref.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root 1 0 R >>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		xref.append("startxref\n").append(xrefOffset).append("\n%%EOF\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		write(output, xref.toString());
+		OutputStream file = new FileOutputStream(pdfFile);
+		try {
+			output.writeTo(file);
+		} finally {
+			file.close();
+		}
+	}
+
+	private void writePage(ByteArrayOutputStream output, int page, int pageObject) throws IOException {
+		int contentObject = pageObject + 1;
+		StringBuilder annotations = new StringBuilder();
+		for (int link = 0; link < linksPerPage; link++) {
+			annotations.append(contentObject + 1 + link).append(" 0 R "); //$NON-NLS-1$
+		}
+		writeObject(output, pageObject, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + PAGE_WIDTH + ' ' + PAGE_HEIGHT + "] /Contents " + contentObject + " 0 R /Annots [" + annotations + "] >>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+		StringBuilder content = new StringBuilder("0.5 w\n"); //$NON-NLS-1$
+		for (int system = 0; system < SYSTEMS_PER_PAGE; system++) {
+			float top = getSystemTop(system);
+			for (int line = 0; line < 5; line++) {
+				float y = top - line * STAFF_SPACE;
+				content.append(format("%d %.2f m %d %.2f l S\n", MARGIN, y, PAGE_WIDTH - MARGIN, y)); //$NON-NLS-1$
+			}
+		}
+		float[][] noteHeads = new float[linksPerPage][];
+		for (int link = 0; link < linksPerPage; link++) {
+			noteHeads[link] = getNoteHead(link);
+			content.append(format("%.2f %.2f %.2f %.2f re f\n", noteHeads[link][0], noteHeads[link][1], noteHeads[link][2] - noteHeads[link][0], noteHeads[link][3] - noteHeads[link][1])); //$NON-NLS-1$
+		}
+		byte[] stream = content.toString().getBytes(ISOCHARSET);
+		offsets.add(output.size());
+		write(output, contentObject + " 0 obj\n<< /Length " + stream.length + " >>\nstream\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		output.write(stream);
+		write(output, "endstream\nendobj\n"); //$NON-NLS-1$
+
+		for (int link = 0; link < linksPerPage; link++) {
+			float[] rectangle = noteHeads[link];
+			writeObject(output, contentObject + 1 + link, format("<< /Type /Annot /Subtype /Link /Rect [%.2f %.2f %.2f %.2f] /Border [0 0 0] /A << /Type /Action /S /URI /URI (%s) >> >>", rectangle[0], rectangle[1], rectangle[2], rectangle[3], getTexteditURI(page * linksPerPage + link))); //$NON-NLS-1$
+		}
+	}
+
+	private static float getSystemTop(int system) {
+		return PAGE_HEIGHT - MARGIN - system * (PAGE_HEIGHT - 2 * MARGIN) / (float)SYSTEMS_PER_PAGE;
+	}
+
+	/**
+	 * Returns the rectangle of the note head of the given link as left,
+	 * bottom, right and top. The notes are spread evenly over the systems.
+	 */
+	private float[] getNoteHead(int link) {
+		int notesPerSystem = (linksPerPage + SYSTEMS_PER_PAGE - 1) / SYSTEMS_PER_PAGE;
+		int system = link / notesPerSystem;
+		int position = link % notesPerSystem;
+		float left = MARGIN + 10 + position * (PAGE_WIDTH - 2 * MARGIN - 20) / (float)notesPerSystem;
+		float bottom = getSystemTop(system) - (link % 9) * STAFF_SPACE / 2 - STAFF_SPACE / 2;
+		return new float[] { left, bottom, left + STAFF_SPACE * 1.3f, bottom + STAFF_SPACE };
+	}
+
+	private void writeObject(ByteArrayOutputStream output, int number, String dictionary) throws IOException {
+		offsets.add(output.size());
+		write(output, number + " 0 obj\n" + dictionary + "\nendobj\n"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void write(ByteArrayOutputStream output, String text) throws IOException {
+		output.write(text.getBytes(ISOCHARSET));
+	}
+
+	private static String format(String format, Object... arguments) {
+		return String.format(Locale.ROOT, format, arguments);
+	}
+
+}
@@ -0,0 +1,45 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.awt.image.BufferedImage;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.eclipse.ui.views.pdf.PdfFileUtils;
+import org.jpedal.PdfDecoder;
+import org.jpedal.exception.PdfException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Rasterizes the pages of a score at the zoom factors of the PDF view, the
+ * way the view's render job does.
+ */
+public class RenderBenchmark extends PdfBenchmark {
+
+	@Param({ "1", "2" })
+	public float zoom;
+
+	private PdfDecoder pdfDecoder;
+
+	private ImageInputStream pdfInput;
+
+	@Override
+	protected void open() throws Exception {
+		pdfDecoder = new PdfDecoder();
+		pdfInput = PdfFileUtils.openPdfInput(pdfDecoder, corpus.getPdfFile());
+	}
+
+	@Override
+	protected void close() {
+		pdfDecoder.closePdfFile();
+		PdfFileUtils.closePdfInput(pdfInput);
+	}
+
+	@Benchmark
+	public BufferedImage rasterizePage() throws PdfException {
+		int page = nextPage();
+		pdfDecoder.setPageParameters(zoom, page);
+		return pdfDecoder.getPageAsImage(page);
+	}
+
+}
@@ -0,0 +1,30 @@
+package org.eclipse.ui.views.pdf.benchmarks;
+
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses the textedit URIs of the links of a score, without reading the PDF
+ * file.
+ */
+public class TexteditParsingBenchmark extends PdfBenchmark {
+
+	private List<String> uris;
+
+	@Override
+	protected void open() {
+		uris = corpus.getTexteditURIs();
+	}
+
+	@Benchmark
+	public void parseTexteditURIs(Blackhole blackhole) throws URISyntaxException {
+		for (String uri : uris) {
+			blackhole.consume(PdfAnnotationExtractor.parseTexteditURI(uri));
+		}
+	}
+
+}
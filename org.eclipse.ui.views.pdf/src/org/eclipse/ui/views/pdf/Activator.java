@@ -1,19 +1,51 @@
 package org.eclipse.ui.views.pdf;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationIndexJob;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationIndexUpdater;
 import org.osgi.framework.BundleContext;
 
 public class Activator extends AbstractUIPlugin {
 
+	/**
+	 * Whether the annotation indexes of PDF files are updated whenever the
+	 * files change in the workspace, enabled by the system property
+	 * <code>pdfViewIndexOnChange</code>. Otherwise files are indexed when they
+	 * are opened in the view or by the index command.
+	 */
+	private static final boolean INDEX_ON_CHANGE = Boolean.getBoolean("pdfViewIndexOnChange"); //$NON-NLS-1$
+
 	private static Activator instance;
 
+	private PdfAnnotationIndexUpdater indexUpdater;
+
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		instance = this;
+		PdfViewStatistics.getInstance().register();
+		if (INDEX_ON_CHANGE) {
+			indexUpdater = new PdfAnnotationIndexUpdater();
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(indexUpdater, IResourceChangeEvent.POST_CHANGE);
+		}
+	}
+
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		if (indexUpdater != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(indexUpdater);
+			indexUpdater = null;
+		}
+		Job.getJobManager().cancel(PdfAnnotationIndexJob.FAMILY);
+		PdfViewStatistics.getInstance().unregister();
+		instance = null;
+		super.stop(context);
 	}
 
 	/**
@@ -0,0 +1,48 @@
+package org.eclipse.ui.views.pdf;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.handlers.HandlerUtil;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationIndexJob;
+
+/**
+ * Builds the point-and-click annotation indexes of all PDF files in the
+ * projects of the selected resources.
+ */
+public class IndexAnnotationsHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		Set<IProject> projects = new LinkedHashSet<IProject>();
+		ISelection selection = HandlerUtil.getCurrentSelection(event);
+		if (selection instanceof IStructuredSelection) {
+			for (Object element : ((IStructuredSelection)selection).toArray()) {
+				IResource resource = null;
+				if (element instanceof IResource) {
+					resource = (IResource)element;
+				} else if (element instanceof IAdaptable) {
+					resource = ((IAdaptable)element).getAdapter(IResource.class);
+				}
+				if (resource != null) {
+					projects.add(resource.getProject());
+				}
+			}
+		}
+		for (IProject project : projects) {
+			if (project.isAccessible()) {
+				PdfAnnotationIndexJob.forContainer(project).schedule();
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.eclipse.ui.views.pdf;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.util.file.MappedFileImageInputStream;
+
+import org.jpedal.PdfDecoder;
+import org.jpedal.exception.PdfException;
+
+public class PdfFileUtils {
+
+	private PdfFileUtils() {
+	}
+
+	/**
+	 * Opens the given PDF file in the given decoder through a memory mapping and
+	 * returns the input the decoder reads from. The decoder doesn't close the
+	 * input, it has to be closed with {@link #closePdfInput(ImageInputStream)}
+	 * when the decoder doesn't access it anymore.
+	 */
+	public static ImageInputStream openPdfInput(PdfDecoder pdfDecoder, File pdfFile) throws PdfException {
+		ImageInputStream pdfInput;
+		try {
+			try {
+				pdfInput = new MappedFileImageInputStream(pdfFile);
+			} catch (IOException e) {
+				// e.g. files that are too large to be mapped
+				pdfInput = new FileImageInputStream(pdfFile);
+			}
+		} catch (IOException e) {
+			throw new PdfException("Can't open PDF file " + pdfFile + ": " + e.getMessage());
+		}
+		try {
+			pdfDecoder.openPdfFileFromStream(pdfInput, null);
+		} catch (PdfException | RuntimeException e) {
+			closePdfInput(pdfInput);
+			throw e;
+		}
+		return pdfInput;
+	}
+
+	/**
+	 * Releases the given input returned by
+	 * {@link #openPdfInput(PdfDecoder, File)}, if any.
+	 */
+	public static void closePdfInput(ImageInputStream pdfInput) {
+		if (pdfInput != null) {
+			try {
+				pdfInput.close();
+			} catch (IOException e) {
+				Activator.logError("Can't release PDF file", e);
+			}
+		}
+	}
+
+}
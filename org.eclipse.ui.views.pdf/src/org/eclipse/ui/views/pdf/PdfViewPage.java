@@ -2,18 +2,16 @@ package org.eclipse.ui.views.pdf;
 
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.File;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang.StringEscapeUtils;
+import javax.imageio.stream.ImageInputStream;
+
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -25,6 +23,7 @@ import org.eclipse.swt.events.FocusListener;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.util.ImageUtils;
@@ -34,15 +33,16 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.contexts.IContextActivation;
 import org.eclipse.ui.contexts.IContextService;
+import org.eclipse.ui.views.file.IScoreFollowingListener;
+import org.eclipse.ui.views.file.ScoreFollowing;
+import org.eclipse.ui.views.pdf.PdfViewStatistics.Stage;
 import org.eclipse.ui.views.pdf.PdfViewToolbarManager.FitToAction;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationExtractor;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationIndex;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationLocations;
 import org.jpedal.PdfDecoder;
 import org.jpedal.exception.PdfException;
 import org.jpedal.objects.PdfPageData;
-import org.jpedal.objects.acroforms.rendering.AcroRenderer;
-import org.jpedal.objects.raw.FormObject;
-import org.jpedal.objects.raw.PdfArrayIterator;
-import org.jpedal.objects.raw.PdfDictionary;
-import org.jpedal.objects.raw.PdfObject;
 
 public class PdfViewPage extends ScrolledComposite {
 
@@ -51,7 +51,15 @@ public class PdfViewPage extends ScrolledComposite {
 	private static final String CONTEXT="org.eclipse.ui.views.pdf.context";
 
 	public PdfViewPage(Composite parent, IFile file) throws PdfException {
+		this(parent, file, PdfViewPageInput.open(file));
+	}
+
+	/**
+	 * Creates a page for the given file, which was opened in advance.
+	 */
+	public PdfViewPage(Composite parent, IFile file, PdfViewPageInput input) {
 		super(parent, SWT.H_SCROLL | SWT.V_SCROLL);
+		pdfDecoder = input.pdfDecoder;
 		pdfDisplay = new Composite(this, SWT.NONE);
 		pdfDisplay.setBackgroundMode(SWT.INHERIT_FORCE);
 		pdfDisplay.addPaintListener(new PaintListener() {
@@ -65,7 +73,7 @@ public class PdfViewPage extends ScrolledComposite {
 		getHorizontalBar().setIncrement(getHorizontalBar().getIncrement() * 4);
 		getVerticalBar().setIncrement(getVerticalBar().getIncrement() * 4);
 		pdfDisplay.addPaintListener(new HyperlinkHighlightPaintListener());
-		setFile(file);
+		setFile(file, input.pdfInput, input.annotationIndex, input.indexedAnnotations, true);
 		addFocusListener(new PdfViewFocusListener());
 		setContent(pdfDisplay);
 		if(DESTROY_LINKS_ON_FOCUS_LOSS){
@@ -102,10 +110,18 @@ public class PdfViewPage extends ScrolledComposite {
 	/**
 	 * The PDF engine which renders the pages.
 	 */
-	private final PdfDecoder pdfDecoder = new PdfDecoder();
+	private final PdfDecoder pdfDecoder;
 
 	private final RenderJob renderJob=new RenderJob();
 
+	/**
+	 * Guards the decoder, which renders pages in the UI thread or the page
+	 * turn job and extracts annotations in the annotations job.
+	 */
+	private final Object decoderLock = new Object();
+
+	private final PdfViewStatistics statistics = PdfViewStatistics.getInstance();
+
 	private class RenderJob extends Job{
 
 		private BufferedImage pageAsImage;
@@ -114,9 +130,21 @@ public class PdfViewPage extends ScrolledComposite {
 		}
 
 		public void obtainImage(){
+			synchronized (decoderLock) {
+				render();
+			}
+		}
+
+		private void render(){
 			pdfDecoder.setPageParameters(getZoom(), getPage());
 			try {
+				long start = PdfViewStatistics.start();
 				pageAsImage=pdfDecoder.getPageAsImage(getPage());
+				statistics.record(Stage.RENDER, getFileName(), getPage(), start);
+				if (pageAsImage != null) {
+					DataBuffer dataBuffer = pageAsImage.getRaster().getDataBuffer();
+					statistics.recordImageBytes((long)dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8);
+				}
 			} catch (PdfException e) {
 				Activator.logError("Can't render PDF page", e);
 				pageAsImage=null;
@@ -140,7 +168,12 @@ public class PdfViewPage extends ScrolledComposite {
 					if (image != null) {
 						image.dispose();
 					}
-					image = new Image(getDisplay(), ImageUtils.convertBufferedImageToImageData(awtImage));
+					long start = PdfViewStatistics.start();
+					ImageData imageData = ImageUtils.convertBufferedImageToImageData(awtImage);
+					statistics.record(Stage.CONVERT, getFileName(), getPage(), start);
+					start = PdfViewStatistics.start();
+					image = new Image(getDisplay(), imageData);
+					statistics.record(Stage.UPLOAD, getFileName(), getPage(), start);
 					int width = awtImage.getWidth();
 					int height = awtImage.getHeight();
 					pdfDisplay.setSize(width, height);
@@ -169,6 +202,7 @@ public class PdfViewPage extends ScrolledComposite {
 	@Override
 	public void redraw() {
 		if (isFileOpen()) {
+			pageTurnJob.cancel();
 			renderJob.cancel();
 			loadAnnotationsJob.cancel();
 			createHyperlinksJob.cancel();
@@ -181,6 +215,34 @@ public class PdfViewPage extends ScrolledComposite {
 		}
 	}
 
+	/**
+	 * Renders the page turned to by score following in the background, so that
+	 * playback doesn't stutter. The hyperlinks are created afterwards as usual.
+	 */
+	private final Job pageTurnJob = new Job("Turning PDF page") {
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			renderJob.cancel();
+			loadAnnotationsJob.cancel();
+			createHyperlinksJob.cancel();
+			waitForJob(renderJob);
+			waitForJob(loadAnnotationsJob);
+			waitForJob(createHyperlinksJob);
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			renderJob.obtainImage();
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			renderJob.schedule();
+			createHyperlinks();
+			return Status.OK_STATUS;
+		}
+
+	};
+
 	private void align() {
 		Rectangle clientArea = getClientArea();
 		Point size = pdfDisplay.getSize();
@@ -217,22 +279,68 @@ public class PdfViewPage extends ScrolledComposite {
 		return getFile().getFullPath().toOSString();
 	}
 
+	/**
+	 * The memory mapped content of the open PDF file.
+	 */
+	private ImageInputStream pdfInput;
+
 	public void setFile(IFile file) throws PdfException {
 		if(pdfDecoder==null){
 			return;
 		}
-		pdfDecoder.openPdfFile(file.getLocation().toOSString());
+		File pdfFile = file.getLocation().toFile();
+		PdfAnnotationIndex index = new PdfAnnotationIndex(pdfFile);
+		// The decoder switches to the new file, no job may be decoding the old one
+		cancelJobs();
+		ImageInputStream newPdfInput = PdfFileUtils.openPdfInput(pdfDecoder, pdfFile);
+		// The index is read by the annotations job
+		setFile(file, newPdfInput, index, null, false);
+	}
+
+	/**
+	 * Shows the given file, which was opened by the decoder of this page. If
+	 * the index wasn't read yet, it is read in the background before the
+	 * annotations are loaded.
+	 */
+	private void setFile(IFile file, ImageInputStream newPdfInput, PdfAnnotationIndex index, Map<Integer, List<PdfAnnotation>> indexedAnnotations, boolean indexRead) {
+		ImageInputStream oldPdfInput = pdfInput;
+		pdfInput = newPdfInput;
 		int pageToSet=1;
 		if (file.equals(this.file)) {
 			pageToSet=getPage();
 		} else {
 			this.file = file;
 		}
+		annotationLocations = null;
+		cancelJobs();
 		resetAnnotationsJob.schedule();
 		waitForJob(resetAnnotationsJob);
+		// No job accesses the old mapping anymore
+		PdfFileUtils.closePdfInput(oldPdfInput);
+		annotationIndex = index;
+		annotationIndexRead = indexRead;
+		annotationsIndexed = false;
+		if (indexedAnnotations != null) {
+			addIndexedAnnotations(indexedAnnotations);
+		}
 		setPage(pageToSet);
 	}
 
+	/**
+	 * Cancels the jobs which read the open PDF file and waits until they are
+	 * finished.
+	 */
+	private void cancelJobs() {
+		pageTurnJob.cancel();
+		waitForJob(pageTurnJob);
+		renderJob.cancel();
+		waitForJob(renderJob);
+		loadAnnotationsJob.cancel();
+		waitForJob(loadAnnotationsJob);
+		createHyperlinksJob.cancel();
+		waitForJob(createHyperlinksJob);
+	}
+
 	public void reload() throws PdfException {
 		setFile(getFile());
 	}
@@ -242,16 +350,14 @@ public class PdfViewPage extends ScrolledComposite {
 	}
 
 	public void closeFile() {
+		ScoreFollowing.removeListener(scoreFollowingListener);
 		if(pdfDecoder!=null){
-			renderJob.cancel();
-			waitForJob(renderJob);
-			loadAnnotationsJob.cancel();
-			waitForJob(loadAnnotationsJob);
-			createHyperlinksJob.cancel();
-			waitForJob(createHyperlinksJob);
+			cancelJobs();
 			disposeOldHyperlinks();
 			annotationHyperlinkMap.clear();
 			pdfDecoder.closePdfFile();
+			PdfFileUtils.closePdfInput(pdfInput);
+			pdfInput = null;
 		}
 		if(image!=null) {
 			image.dispose();
@@ -286,6 +392,11 @@ public class PdfViewPage extends ScrolledComposite {
 	}
 
 	public void setPageInForeground(boolean putInForeGround){
+		if(putInForeGround){
+			ScoreFollowing.addListener(scoreFollowingListener);
+		}else{
+			ScoreFollowing.removeListener(scoreFollowingListener);
+		}
 		if(!putInForeGround){
 			disposeOldHyperlinks();
 		}else if(!DESTROY_LINKS_ON_FOCUS_LOSS){
@@ -426,6 +537,64 @@ public class PdfViewPage extends ScrolledComposite {
 	private final Map<Integer, List<PdfAnnotation>> annotations = new HashMap<Integer, List<PdfAnnotation>>();
 	private Integer pageWithPriorityToLoad=null;
 
+	/**
+	 * The persistent annotation index of the open version of the PDF file.
+	 */
+	private PdfAnnotationIndex annotationIndex;
+
+	/**
+	 * Whether the annotation index was read, otherwise it is read by the
+	 * annotations job.
+	 */
+	private volatile boolean annotationIndexRead;
+
+	/**
+	 * Whether the annotation index contains all annotations of the open PDF file.
+	 */
+	private volatile boolean annotationsIndexed;
+
+	private void addIndexedAnnotations(Map<Integer, List<PdfAnnotation>> indexedAnnotations) {
+		annotations.putAll(indexedAnnotations);
+		annotationsIndexed = true;
+		annotationLocations = new PdfAnnotationLocations(annotations);
+	}
+
+	/**
+	 * Stores a snapshot of the annotations of all pages, copied on the UI
+	 * thread, in the background.
+	 */
+	private void storeAnnotationIndex() {
+		final PdfAnnotationIndex index = annotationIndex;
+		Display.getDefault().asyncExec(new Runnable() {
+
+			@Override
+			public void run() {
+				if (index != annotationIndex) {
+					return; // Another file was opened
+				}
+				final Map<Integer, List<PdfAnnotation>> snapshot = new HashMap<Integer, List<PdfAnnotation>>(annotations);
+				Job storeJob = new Job("Storing point-and-click annotation index") {
+
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						index.store(snapshot);
+						return Status.OK_STATUS;
+					}
+
+				};
+				storeJob.setSystem(true);
+				storeJob.schedule();
+			}
+
+		});
+	}
+
+	/**
+	 * The annotations by source location, available when all annotations are
+	 * loaded.
+	 */
+	private volatile PdfAnnotationLocations annotationLocations;
+
 	public PdfAnnotation[] getAnnotationsOnPage(int page) {
 		List<PdfAnnotation> loadedAnnotations=annotations.get(page);
 		if(loadedAnnotations==null){
@@ -448,7 +617,6 @@ public class PdfViewPage extends ScrolledComposite {
 		}
 	};
 
-	private static final Charset ISOCHARSET=Charset.forName("ISO-8859-1");//$NON-NLS-1$
 	private final Job loadAnnotationsJob = new Job("Loading annotations for point-and-click hyperlinks") {
 
 		@Override
@@ -459,18 +627,40 @@ public class PdfViewPage extends ScrolledComposite {
 				return Status.CANCEL_STATUS;
 			}
 
+			if(!annotationIndexRead){
+				annotationIndexRead=true;
+				Map<Integer, List<PdfAnnotation>> indexedAnnotations=annotationIndex.load();
+				if(indexedAnnotations!=null){
+					addIndexedAnnotations(indexedAnnotations);
+				}
+			}
+
 			Integer page=getNextPageToLoad();
 			if(page==null){
+				if(!annotationsIndexed){
+					annotationsIndexed=true;
+					storeAnnotationIndex();
+				}
+				if(annotationLocations==null){
+					annotationLocations=new PdfAnnotationLocations(annotations);
+				}
 				return Status.OK_STATUS;
 			} else if(monitor.isCanceled()){
 				return Status.CANCEL_STATUS;
 			}
 
-			List<PdfAnnotation> annotationsOnPage=getPossiblyIncompleteListOfAnnotationsForPage(page, monitor);
+			monitor.setTaskName(getFileName()+" page "+page);
+			long start = PdfViewStatistics.start();
+			List<PdfAnnotation> annotationsOnPage;
+			synchronized (decoderLock) {
+				annotationsOnPage=PdfAnnotationExtractor.extractPage(pdfDecoder, page, monitor);
+			}
 
 			if(monitor.isCanceled()){
 				return Status.CANCEL_STATUS;
 			}
+			statistics.record(Stage.ANNOTATIONS, getFileName(), page, start);
+			statistics.recordAnnotations(annotationsOnPage.size());
 			annotations.put(page, annotationsOnPage);
 			this.schedule();
 			return Status.OK_STATUS;
@@ -490,89 +680,6 @@ public class PdfViewPage extends ScrolledComposite {
 			}
 			return null;
 		}
-
-		private void addRawObjectToPdfAnnotationList(Integer page, Object rawObject, List<PdfAnnotation> list, Map<String, IFile> fileCache){
-			if (rawObject instanceof FormObject) {
-				FormObject formObject = (FormObject) rawObject;
-				int subtype = formObject.getParameterConstant(PdfDictionary.Subtype);
-				if (subtype == PdfDictionary.Link) {
-					PdfObject anchor = formObject.getDictionary(PdfDictionary.A);
-					try {
-						byte[] uriDecodedBytes = anchor.getTextStreamValue(PdfDictionary.URI).getBytes(ISOCHARSET); 
-						URI uri = new URI(StringEscapeUtils.unescapeHtml(new String(uriDecodedBytes)));
-						if (uri.getScheme().equals("textedit")) { //$NON-NLS-1$
-							String[] sections = uri.getPath().split(":"); //$NON-NLS-1$
-							String path = (uri.getAuthority() == null ? "" : uri.getAuthority()) + sections[0]; //$NON-NLS-1$
-							IFile targetIFile=null;
-							File targetFile = new File(path).getAbsoluteFile();
-							if(targetFile.exists()) {
-								URI targetURI=targetFile.toURI().normalize();
-								//TODO all targetIFile will be removed later
-								//reuse file cache for path->targetFile 
-								if(fileCache.containsKey(path)){
-									targetIFile=fileCache.get(path);
-								}else{
-									IFile[] files = ResourcesPlugin.getWorkspace().getRoot().findFilesForLocationURI(targetURI);
-									for (IFile iFile : files) {
-										if(iFile.exists()) {
-											targetIFile=iFile;
-										}
-									}
-									fileCache.put(path, targetIFile);
-								}
-								PdfAnnotation annotation = new PdfAnnotation();
-								annotation.page = page;
-								annotation.fileURI = targetURI;
-								annotation.file = targetIFile;
-								annotation.lineNumber = Integer.parseInt(sections[1]) - 1;
-								annotation.columnNumber = Integer.parseInt(sections[2]); // This value is independent of tab width
-								float[] rectangle = formObject.getFloatArray(PdfDictionary.Rect);
-								annotation.left = rectangle[0];
-								annotation.bottom = rectangle[1];
-								annotation.right = rectangle[2];
-								annotation.top = rectangle[3];
-								list.add(annotation);
-							}
-						}
-					} catch (URISyntaxException e) {
-						Activator.logError("Invalid annotation URI", e);
-					} catch (ArrayIndexOutOfBoundsException e) {
-						Activator.logError("Error while parsing annotation URI", e);
-					}
-				}
-			}
-		}
-
-		/**
-		 * the list is incomplete if the job was cancelled
-		 * */
-		private List<PdfAnnotation> getPossiblyIncompleteListOfAnnotationsForPage(Integer page, IProgressMonitor monitor){
-			AcroRenderer formRenderer = pdfDecoder.getFormRenderer();
-			monitor.setTaskName(getFileName()+" page "+page);
-			List<PdfAnnotation> annotationsOnPage = new ArrayList<PdfAnnotation>();
-
-			//TODO check if this is still correct:
-			//This getter call accounts for 70-99% of the time spent in this method!!
-			//Is there a later more performant jpedal version that can be used?
-			//Can the currently used version be patched?
-			PdfArrayIterator pdfAnnotations = formRenderer.getAnnotsOnPage(page);
-			if(pdfAnnotations!=null){
-				Map<String, IFile> fileCache=new HashMap<String, IFile>();
-				while (!monitor.isCanceled() && pdfAnnotations.hasMoreTokens()) {
-					String key = pdfAnnotations.getNextValueAsString(true);
-					Object rawObject = formRenderer.getFormDataAsObject(key);
-					if (rawObject instanceof Object[]) {
-						Object[] rawObjects = (Object[]) rawObject;
-						for (Object object : rawObjects) {
-							addRawObjectToPdfAnnotationList(page, object, annotationsOnPage, fileCache);
-						}
-					} else {
-						addRawObjectToPdfAnnotationList(page, rawObject, annotationsOnPage, fileCache);
-					}
-				}
-			}
-			return annotationsOnPage;
-		}
 	};
 
 	private static void waitForJob(Job job) {
@@ -616,6 +723,7 @@ public class PdfViewPage extends ScrolledComposite {
 		}
 
 		private void waitForPageAnnotationsToBeLoaded(IProgressMonitor monitor){
+			statistics.recordAnnotationCacheAccess(annotations.containsKey(page));
 			while(!annotations.containsKey(page)){
 				monitor.setTaskName("waiting for annotations to be loaded");
 				if(monitor.isCanceled()){
@@ -633,30 +741,42 @@ public class PdfViewPage extends ScrolledComposite {
 			Display.getDefault().syncExec(new Runnable() {
 				@Override
 				public void run() {
-					for (final PdfAnnotation annotation : annotationsOnPage) {
-						if (monitor.isCanceled()) {
-							return;
-						}
-						if(!pdfDisplay.isDisposed()){
-							PdfAnnotationHyperlink hyperlink = new PdfAnnotationHyperlink(pdfDisplay, annotation);
-							annotationHyperlinkMap.put(annotation, hyperlink);
-							float zoom = getZoom();
-							float left = annotation.left * zoom;
-							float right = annotation.right * zoom;
-							float width = Math.abs(right - left);
-							float top = annotation.top * zoom;
-							float bottom = annotation.bottom * zoom;
-							float height = Math.abs(bottom - top);
-							Rectangle2D.Float bounds = new Rectangle2D.Float(left, top, width, height);
-							float pageWidth = getPageWidth() * zoom;
-							float pageHeight = getPageHeight() * zoom;
-							transform(bounds, getPageRotation(), pageWidth, pageHeight);
-							hyperlink.setBounds((int)bounds.x, (int)bounds.y, (int)bounds.width, (int)bounds.height);
-						}
+					long start = PdfViewStatistics.start();
+					try {
+						addHyperlinks(annotationsOnPage, monitor);
+					} finally {
+						statistics.record(Stage.HYPERLINKS, getFileName(), page, start);
+					}
+					if (!monitor.isCanceled()) {
+						highlightPendingAnnotation();
 					}
 				}
 			});
 		}
+
+		private void addHyperlinks(final PdfAnnotation[] annotationsOnPage, final IProgressMonitor monitor){
+			for (final PdfAnnotation annotation : annotationsOnPage) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				if(!pdfDisplay.isDisposed()){
+					PdfAnnotationHyperlink hyperlink = new PdfAnnotationHyperlink(pdfDisplay, annotation);
+					annotationHyperlinkMap.put(annotation, hyperlink);
+					float zoom = getZoom();
+					float left = annotation.left * zoom;
+					float right = annotation.right * zoom;
+					float width = Math.abs(right - left);
+					float top = annotation.top * zoom;
+					float bottom = annotation.bottom * zoom;
+					float height = Math.abs(bottom - top);
+					Rectangle2D.Float bounds = new Rectangle2D.Float(left, top, width, height);
+					float pageWidth = getPageWidth() * zoom;
+					float pageHeight = getPageHeight() * zoom;
+					transform(bounds, getPageRotation(), pageWidth, pageHeight);
+					hyperlink.setBounds((int)bounds.x, (int)bounds.y, (int)bounds.width, (int)bounds.height);
+				}
+			}
+		}
 	};
 
 	private void disposeOldHyperlinks(){
@@ -726,12 +846,38 @@ public class PdfViewPage extends ScrolledComposite {
 	private static final float HYPERLINK_HIGHLIGHT_PADDING = 5;
 
 	/**
-	 * Reveals and highlights the hyperlink of the given annotation.
+	 * The annotation to highlight when the hyperlinks of its page are created.
+	 */
+	private PdfAnnotation pendingAnnotation;
+
+	/**
+	 * Reveals and highlights the hyperlink of the given annotation. The page of
+	 * the annotation is rendered in the background and the hyperlink is
+	 * highlighted when the hyperlinks of that page are created, so that the UI
+	 * thread never waits for them.
 	 */
 	public void highlightAnnotation(PdfAnnotation annotation) {
-		setPage(annotation.page);
-		waitForJob(renderJob);
-		waitForJob(createHyperlinksJob);
+		pendingAnnotation = annotation;
+		int newPage = Math.max(1, Math.min(annotation.page, getPageCount()));
+		if (page != newPage) {
+			highlightedHyperlink = null;
+		}
+		page = newPage;
+		if (isFileOpen()) {
+			pageTurnJob.cancel();
+			pageTurnJob.schedule();
+		}
+	}
+
+	private void highlightPendingAnnotation() {
+		PdfAnnotation annotation = pendingAnnotation;
+		if (annotation != null && annotation.page == getPage() && !isDisposed()) {
+			pendingAnnotation = null;
+			highlightHyperlink(annotation);
+		}
+	}
+
+	private void highlightHyperlink(PdfAnnotation annotation) {
 		PdfAnnotationHyperlink hyperlink = annotationHyperlinkMap.get(annotation);
 		if (hyperlink != null) {
 			highlightedHyperlink = hyperlink;
@@ -740,6 +886,38 @@ public class PdfViewPage extends ScrolledComposite {
 		}
 	}
 
+	// Score following
+
+	/**
+	 * The annotation of the note played last.
+	 */
+	private PdfAnnotation followedAnnotation;
+
+	/**
+	 * Highlights the notes played by the MIDI view. The page is only rendered
+	 * again when the played note is on another page.
+	 */
+	private final IScoreFollowingListener scoreFollowingListener = new IScoreFollowingListener() {
+
+		@Override
+		public void sourcePositionPlayed(URI file, int lineNumber, int columnNumber) {
+			PdfAnnotationLocations locations = annotationLocations;
+			if (locations == null || isDisposed()) {
+				return;
+			}
+			PdfAnnotation annotation = locations.find(file, lineNumber, columnNumber);
+			if (annotation != null && annotation != followedAnnotation) {
+				followedAnnotation = annotation;
+				if (annotation.page == getPage()) {
+					highlightHyperlink(annotation);
+				} else {
+					highlightAnnotation(annotation);
+				}
+			}
+		}
+
+	};
+
 	private void scrollTo(Control control) {
 		Rectangle itemRect = getDisplay().map(control.getParent(), this, control.getBounds());
 		final int padding = 10;
@@ -0,0 +1,58 @@
+package org.eclipse.ui.views.pdf;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.ui.views.pdf.annotations.PdfAnnotationIndex;
+import org.jpedal.PdfDecoder;
+import org.jpedal.exception.PdfException;
+
+/**
+ * A PDF file opened for a new {@link PdfViewPage}. Opening doesn't need a
+ * display, so it can be done in the background before the page is created.
+ */
+public class PdfViewPageInput {
+
+	final PdfDecoder pdfDecoder;
+
+	final ImageInputStream pdfInput;
+
+	final PdfAnnotationIndex annotationIndex;
+
+	/**
+	 * The annotations read from the index, <code>null</code> if the index is
+	 * not up to date.
+	 */
+	final Map<Integer, List<PdfAnnotation>> indexedAnnotations;
+
+	private PdfViewPageInput(PdfDecoder pdfDecoder, ImageInputStream pdfInput, PdfAnnotationIndex annotationIndex, Map<Integer, List<PdfAnnotation>> indexedAnnotations) {
+		this.pdfDecoder = pdfDecoder;
+		this.pdfInput = pdfInput;
+		this.annotationIndex = annotationIndex;
+		this.indexedAnnotations = indexedAnnotations;
+	}
+
+	/**
+	 * Opens the given PDF file and reads its annotation index.
+	 */
+	public static PdfViewPageInput open(IFile file) throws PdfException {
+		File pdfFile = file.getLocation().toFile();
+		PdfAnnotationIndex index = new PdfAnnotationIndex(pdfFile);
+		PdfDecoder pdfDecoder = new PdfDecoder();
+		ImageInputStream pdfInput = PdfFileUtils.openPdfInput(pdfDecoder, pdfFile);
+		return new PdfViewPageInput(pdfDecoder, pdfInput, index, index.load());
+	}
+
+	/**
+	 * Closes the file if no page was created from this input.
+	 */
+	public void close() {
+		pdfDecoder.closePdfFile();
+		PdfFileUtils.closePdfInput(pdfInput);
+	}
+
+}
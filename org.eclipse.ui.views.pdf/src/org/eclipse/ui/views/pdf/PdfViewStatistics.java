@@ -0,0 +1,224 @@
+package org.eclipse.ui.views.pdf;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects the durations of the stages of viewing a PDF page and some related
+ * counts. The statistics are published as an MXBean and, if the system
+ * property <code>pdfViewStatisticsLog</code> specifies a log file pattern,
+ * every measurement is also written to a rolling log file.
+ */
+public class PdfViewStatistics implements PdfViewStatisticsMXBean {
+
+	public enum Stage {
+		/** Decoding and rasterizing the page with jpedal. */
+		RENDER,
+		/** Converting the AWT image to SWT image data. */
+		CONVERT,
+		/** Creating the native SWT image. */
+		UPLOAD,
+		/** Parsing the point-and-click annotations of a page. */
+		ANNOTATIONS,
+		/** Creating the hyperlink widgets of a page. */
+		HYPERLINKS
+	}
+
+	private static final String OBJECT_NAME = "org.eclipse.ui.views.pdf:type=PdfViewStatistics"; //$NON-NLS-1$
+
+	private static final String LOG_PATTERN = System.getProperty("pdfViewStatisticsLog"); //$NON-NLS-1$
+
+	private static final int LOG_LIMIT = 1024 * 1024;
+
+	private static final int LOG_COUNT = 5;
+
+	private static final PdfViewStatistics INSTANCE = new PdfViewStatistics();
+
+	public static PdfViewStatistics getInstance() {
+		return INSTANCE;
+	}
+
+	private final AtomicLong[] counts = createCounters();
+
+	private final AtomicLong[] totalNanos = createCounters();
+
+	private final AtomicLong[] maxNanos = createCounters();
+
+	private final AtomicLong annotatedPages = new AtomicLong();
+
+	private final AtomicLong annotations = new AtomicLong();
+
+	private final AtomicLong imageBytes = new AtomicLong();
+
+	private final AtomicLong annotationCacheHits = new AtomicLong();
+
+	private final AtomicLong annotationCacheMisses = new AtomicLong();
+
+	private Logger log;
+
+	private PdfViewStatistics() {
+		if (LOG_PATTERN != null) {
+			try {
+				FileHandler handler = new FileHandler(LOG_PATTERN, LOG_LIMIT, LOG_COUNT, true);
+				handler.setFormatter(new SimpleFormatter());
+				log = Logger.getLogger(PdfViewStatistics.class.getName());
+				log.setUseParentHandlers(false);
+				log.addHandler(handler);
+			} catch (IOException e) {
+				Activator.logError("Can't create PDF view statistics log", e);
+			}
+		}
+	}
+
+	private static AtomicLong[] createCounters() {
+		AtomicLong[] result = new AtomicLong[Stage.values().length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new AtomicLong();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the current time to be passed to
+	 * {@link #record(Stage, String, int, long)} later.
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the duration of a stage that started at the given time.
+	 */
+	public void record(Stage stage, String fileName, int page, long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		int index = stage.ordinal();
+		counts[index].incrementAndGet();
+		totalNanos[index].addAndGet(nanos);
+		AtomicLong max = maxNanos[index];
+		long currentMax;
+		while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) {
+		}
+		if (log != null) {
+			log.info(MessageFormat.format("{0} page {1,number,#}: {2} {3,number,0.000} ms", fileName, page, stage, toMillis(nanos))); //$NON-NLS-1$
+		}
+	}
+
+	public void recordAnnotations(int count) {
+		annotatedPages.incrementAndGet();
+		annotations.addAndGet(count);
+	}
+
+	public void recordImageBytes(long bytes) {
+		imageBytes.addAndGet(bytes);
+	}
+
+	public void recordAnnotationCacheAccess(boolean hit) {
+		(hit ? annotationCacheHits : annotationCacheMisses).incrementAndGet();
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000d;
+	}
+
+	@Override
+	public Map<String, Long> getCounts() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Stage stage : Stage.values()) {
+			result.put(stage.name(), counts[stage.ordinal()].get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getAverageMillis() {
+		Map<String, Double> result = new LinkedHashMap<String, Double>();
+		for (Stage stage : Stage.values()) {
+			long count = counts[stage.ordinal()].get();
+			result.put(stage.name(), count == 0 ? 0 : toMillis(totalNanos[stage.ordinal()].get()) / count);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getMaxMillis() {
+		Map<String, Double> result = new LinkedHashMap<String, Double>();
+		for (Stage stage : Stage.values()) {
+			result.put(stage.name(), toMillis(maxNanos[stage.ordinal()].get()));
+		}
+		return result;
+	}
+
+	@Override
+	public double getAverageAnnotationsPerPage() {
+		long pages = annotatedPages.get();
+		return pages == 0 ? 0 : annotations.get() / (double)pages;
+	}
+
+	@Override
+	public long getImageBytes() {
+		return imageBytes.get();
+	}
+
+	@Override
+	public long getAnnotationCacheHits() {
+		return annotationCacheHits.get();
+	}
+
+	@Override
+	public long getAnnotationCacheMisses() {
+		return annotationCacheMisses.get();
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i].set(0);
+			totalNanos[i].set(0);
+			maxNanos[i].set(0);
+		}
+		annotatedPages.set(0);
+		annotations.set(0);
+		imageBytes.set(0);
+		annotationCacheHits.set(0);
+		annotationCacheMisses.set(0);
+	}
+
+	/**
+	 * Publishes the statistics in the platform MBean server.
+	 */
+	void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (JMException e) {
+			Activator.logError("Can't register PDF view statistics", e);
+		}
+	}
+
+	void unregister() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			Activator.logError("Can't unregister PDF view statistics", e);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.eclipse.ui.views.pdf;
+
+import java.util.Map;
+
+/**
+ * Management interface of the PDF view's rendering and annotation statistics.
+ */
+public interface PdfViewStatisticsMXBean {
+
+	/**
+	 * Returns the number of measurements per stage.
+	 */
+	Map<String, Long> getCounts();
+
+	/**
+	 * Returns the average duration per stage in milliseconds.
+	 */
+	Map<String, Double> getAverageMillis();
+
+	/**
+	 * Returns the maximum duration per stage in milliseconds.
+	 */
+	Map<String, Double> getMaxMillis();
+
+	/**
+	 * Returns the average number of point-and-click annotations per loaded page.
+	 */
+	double getAverageAnnotationsPerPage();
+
+	/**
+	 * Returns the total size of the rendered page images in bytes.
+	 */
+	long getImageBytes();
+
+	/**
+	 * Returns how often the annotations of a page were already loaded when its
+	 * hyperlinks were created.
+	 */
+	long getAnnotationCacheHits();
+
+	/**
+	 * Returns how often hyperlink creation had to wait for the annotations of
+	 * a page to be loaded.
+	 */
+	long getAnnotationCacheMisses();
+
+	/**
+	 * Clears all statistics.
+	 */
+	void reset();
+
+}
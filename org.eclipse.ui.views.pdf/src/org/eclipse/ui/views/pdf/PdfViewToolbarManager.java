@@ -327,6 +327,19 @@ public class PdfViewToolbarManager {
 		fitToHeightAction.setChecked(false);
 	}
 
+	/**
+	 * Returns the special zoom setting with the given name, or
+	 * <code>null</code> if there is none.
+	 */
+	public FitToAction getFitToAction(String name) {
+		for (FitToAction fitToAction : new FitToAction[] { fitToPageAction, fitToWidthAction, fitToHeightAction }) {
+			if (fitToAction.getName().equals(name)) {
+				return fitToAction;
+			}
+		}
+		return null;
+	}
+
 	public class FitToAction extends Action {
 
 		private final ControlListener resizeListener = new ControlAdapter() {
@@ -362,6 +375,8 @@ public class PdfViewToolbarManager {
 
 		private final boolean fitToHeight;
 
+		private final String name;
+
 		public FitToAction(String tooltipTextFragment, String iconNameFragment, boolean fitToWidth, boolean fitToHeight) {
 			super(null, AS_RADIO_BUTTON);
 			if (!fitToWidth && !fitToHeight) {
@@ -369,6 +384,7 @@ public class PdfViewToolbarManager {
 			}
 			this.fitToWidth = fitToWidth;
 			this.fitToHeight = fitToHeight;
+			this.name = iconNameFragment;
 			setToolTipText(MessageFormat.format("Fit To {0}", tooltipTextFragment));
 			setText(getToolTipText());
 			setImageDescriptor(Activator.getImageDescriptor(ICON_PATH + MessageFormat.format("FitTo{0}.png", iconNameFragment))); //$NON-NLS-1$
@@ -402,6 +418,13 @@ public class PdfViewToolbarManager {
 			return getPage()!=null &&super.isEnabled();
 		}
 
+		/**
+		 * Returns the name identifying this setting, e.g. in saved page states.
+		 */
+		public String getName() {
+			return name;
+		}
+
 	}
 
 	private IContributionItem getZoomMenu() {
@@ -5,24 +5,54 @@ import java.util.Map.Entry;
 import java.util.WeakHashMap;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.ui.part.PageBook;
-import org.eclipse.ui.views.file.IFileViewType;
+import org.eclipse.ui.views.file.IAsyncFileViewType;
+import org.eclipse.ui.views.file.IPersistentFileViewType;
 import org.eclipse.ui.views.pdf.PdfViewToolbarManager.FitToAction;
 
-public class PdfViewType implements IFileViewType<PdfViewPage> {
+public class PdfViewType implements IAsyncFileViewType<PdfViewPage, PdfViewPageInput>, IPersistentFileViewType<PdfViewPage> {
 
 	public static final String EXTENSION = "pdf"; //$NON-NLS-1$
 
+	private static final String PAGE = "page"; //$NON-NLS-1$
+
+	private static final String ZOOM = "zoom"; //$NON-NLS-1$
+
+	private static final String FIT = "fit"; //$NON-NLS-1$
+
 	private final Map<IFile, PdfViewPage> pagesByFile = new WeakHashMap<IFile,PdfViewPage>();
 	
 	@Override
 	public PdfViewPage createPage(PageBook pageBook, IFile file) throws Exception {
-		PdfViewPage result = new PdfViewPage(pageBook, file);
+		return createPage(pageBook, file, PdfViewPageInput.open(file));
+	}
+
+	@Override
+	public PdfViewPageInput loadFile(IFile file, IProgressMonitor monitor) throws Exception {
+		return PdfViewPageInput.open(file);
+	}
+
+	@Override
+	public PdfViewPage createPage(PageBook pageBook, IFile file, PdfViewPageInput input) throws Exception {
+		PdfViewPage result;
+		try {
+			result = new PdfViewPage(pageBook, file, input);
+		} catch (RuntimeException e) {
+			input.close();
+			throw e;
+		}
 		pagesByFile.put(file, result);
 		return result;
 	}
 
+	@Override
+	public void discard(PdfViewPageInput input) {
+		input.close();
+	}
+
 	private final PdfViewToolbarManager toolbar = new PdfViewToolbarManager();
 
 	@Override
@@ -97,6 +127,34 @@ public class PdfViewType implements IFileViewType<PdfViewPage> {
 		}
 	}
 
+	@Override
+	public void savePageState(PdfViewPage page, IDialogSettings settings) {
+		settings.put(PAGE, page.getPage());
+		settings.put(ZOOM, page.getZoom());
+		FitToAction fitToAction = page.getFitToAction();
+		if (fitToAction != null) {
+			settings.put(FIT, fitToAction.getName());
+		}
+	}
+
+	@Override
+	public void restorePageState(PdfViewPage page, IDialogSettings settings) {
+		try {
+			int pageNumber = settings.getInt(PAGE);
+			if (page.isPageValid(pageNumber)) {
+				page.setPage(pageNumber);
+			}
+			page.setZoom(settings.getFloat(ZOOM));
+		} catch (NumberFormatException e) {
+			// No state saved
+		}
+		String fit = settings.get(FIT);
+		if (fit != null) {
+			// Applied when the page is shown
+			page.setFitToAction(toolbar.getFitToAction(fit));
+		}
+	}
+
 	@Override
 	public IFile getFile(IFile sourceFile) {
 		return sourceFile;
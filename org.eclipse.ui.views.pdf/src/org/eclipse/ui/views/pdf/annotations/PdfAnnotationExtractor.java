@@ -0,0 +1,224 @@
+package org.eclipse.ui.views.pdf.annotations;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.ui.views.pdf.Activator;
+import org.eclipse.ui.views.pdf.PdfAnnotation;
+import org.eclipse.ui.views.pdf.PdfFileUtils;
+import org.jpedal.PdfDecoder;
+import org.jpedal.exception.PdfException;
+import org.jpedal.objects.acroforms.rendering.AcroRenderer;
+import org.jpedal.objects.raw.FormObject;
+import org.jpedal.objects.raw.PdfArrayIterator;
+import org.jpedal.objects.raw.PdfDictionary;
+import org.jpedal.objects.raw.PdfObject;
+
+/**
+ * Extracts the point-and-click (textedit) hyperlink annotations from PDF
+ * files. It doesn't need a display, so it can be used by background jobs and
+ * batch tools as well as by the PDF view.
+ * <p>
+ * The methods are thread-safe as long as the same decoder isn't used
+ * concurrently; extracting a whole file uses a decoder of its own.
+ */
+public class PdfAnnotationExtractor {
+
+	/**
+	 * Receives the annotations of a PDF file page by page.
+	 */
+	public interface PageCallback {
+
+		/**
+		 * Called when all annotations of the given page have been extracted.
+		 */
+		void pageExtracted(int page, List<PdfAnnotation> annotations);
+
+	}
+
+	private static final Charset ISOCHARSET = Charset.forName("ISO-8859-1");//$NON-NLS-1$
+
+	private PdfAnnotationExtractor() {
+	}
+
+	/**
+	 * Returns the annotations of all pages of the given PDF file, mapped by page
+	 * number. If the monitor is cancelled, the map contains only the pages
+	 * completed so far.
+	 */
+	public static Map<Integer, List<PdfAnnotation>> extract(File pdfFile, IProgressMonitor monitor) throws PdfException {
+		final Map<Integer, List<PdfAnnotation>> result = new HashMap<Integer, List<PdfAnnotation>>();
+		extract(pdfFile, new PageCallback() {
+
+			@Override
+			public void pageExtracted(int page, List<PdfAnnotation> annotations) {
+				result.put(page, annotations);
+			}
+
+		}, monitor);
+		return result;
+	}
+
+	/**
+	 * Extracts the annotations of the given PDF file and passes them page by
+	 * page to the given callback. Stops after the current page if the monitor
+	 * is cancelled; incomplete pages are not passed to the callback.
+	 */
+	public static void extract(File pdfFile, PageCallback callback, IProgressMonitor monitor) throws PdfException {
+		PdfDecoder pdfDecoder = new PdfDecoder();
+		ImageInputStream pdfInput = PdfFileUtils.openPdfInput(pdfDecoder, pdfFile);
+		try {
+			int pageCount = pdfDecoder.getPageCount();
+			SubMonitor progress = SubMonitor.convert(monitor, pdfFile.getName(), pageCount);
+			Map<URI, IFile> fileCache = new HashMap<URI, IFile>();
+			for (int page = 1; page <= pageCount; page++) {
+				List<PdfAnnotation> annotations = extractPage(pdfDecoder, page, fileCache, progress);
+				if (progress.isCanceled()) {
+					return;
+				}
+				callback.pageExtracted(page, annotations);
+				progress.worked(1);
+			}
+		} finally {
+			pdfDecoder.closePdfFile();
+			PdfFileUtils.closePdfInput(pdfInput);
+		}
+	}
+
+	/**
+	 * Returns the annotations on the given page of the PDF file opened by the
+	 * given decoder. The list is incomplete if the monitor is cancelled.
+	 */
+	public static List<PdfAnnotation> extractPage(PdfDecoder pdfDecoder, int page, IProgressMonitor monitor) {
+		return extractPage(pdfDecoder, page, new HashMap<URI, IFile>(), monitor == null ? new NullProgressMonitor() : monitor);
+	}
+
+	private static List<PdfAnnotation> extractPage(PdfDecoder pdfDecoder, int page, Map<URI, IFile> fileCache, IProgressMonitor monitor) {
+		AcroRenderer formRenderer = pdfDecoder.getFormRenderer();
+		List<PdfAnnotation> annotationsOnPage = new ArrayList<PdfAnnotation>();
+
+		PdfArrayIterator pdfAnnotations = formRenderer.getAnnotsOnPage(page);
+		if(pdfAnnotations!=null){
+			while (!monitor.isCanceled() && pdfAnnotations.hasMoreTokens()) {
+				String key = pdfAnnotations.getNextValueAsString(true);
+				Object rawObject = formRenderer.getFormDataAsObject(key);
+				if (rawObject instanceof Object[]) {
+					Object[] rawObjects = (Object[]) rawObject;
+					for (Object object : rawObjects) {
+						addRawObjectToPdfAnnotationList(page, object, annotationsOnPage, fileCache);
+					}
+				} else {
+					addRawObjectToPdfAnnotationList(page, rawObject, annotationsOnPage, fileCache);
+				}
+			}
+		}
+		return annotationsOnPage;
+	}
+
+	private static void addRawObjectToPdfAnnotationList(int page, Object rawObject, List<PdfAnnotation> list, Map<URI, IFile> fileCache){
+		if (rawObject instanceof FormObject) {
+			FormObject formObject = (FormObject) rawObject;
+			int subtype = formObject.getParameterConstant(PdfDictionary.Subtype);
+			if (subtype == PdfDictionary.Link) {
+				PdfObject anchor = formObject.getDictionary(PdfDictionary.A);
+				try {
+					byte[] uriDecodedBytes = anchor.getTextStreamValue(PdfDictionary.URI).getBytes(ISOCHARSET);
+					PdfAnnotation annotation = parseTexteditURI(new String(uriDecodedBytes), fileCache);
+					if (annotation != null) {
+						annotation.page = page;
+						float[] rectangle = formObject.getFloatArray(PdfDictionary.Rect);
+						annotation.left = rectangle[0];
+						annotation.bottom = rectangle[1];
+						annotation.right = rectangle[2];
+						annotation.top = rectangle[3];
+						list.add(annotation);
+					}
+				} catch (URISyntaxException e) {
+					logError("Invalid annotation URI", e);
+				} catch (ArrayIndexOutOfBoundsException e) {
+					logError("Error while parsing annotation URI", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Logs the given error to the plug-in log, or prints it if the plug-in
+	 * isn't running, e.g. in batch tools.
+	 */
+	private static void logError(String message, Throwable throwable) {
+		if (Platform.isRunning() && Activator.getInstance() != null) {
+			Activator.logError(message, throwable);
+		} else {
+			System.err.println(message);
+			throwable.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns an annotation with the source location of the given
+	 * point-and-click URI as written by LilyPond, e.g.
+	 * <code>textedit:///path/score.ly:12:4:4</code>. Returns <code>null</code>
+	 * if it isn't a textedit URI or the source file doesn't exist. The page
+	 * and the rectangle of the annotation are not set.
+	 */
+	public static PdfAnnotation parseTexteditURI(String uriString) throws URISyntaxException {
+		return parseTexteditURI(uriString, new HashMap<URI, IFile>());
+	}
+
+	private static PdfAnnotation parseTexteditURI(String uriString, Map<URI, IFile> fileCache) throws URISyntaxException {
+		URI uri = new URI(StringEscapeUtils.unescapeHtml(uriString));
+		if (!"textedit".equals(uri.getScheme())) { //$NON-NLS-1$
+			return null;
+		}
+		String[] sections = uri.getPath().split(":"); //$NON-NLS-1$
+		String path = (uri.getAuthority() == null ? "" : uri.getAuthority()) + sections[0]; //$NON-NLS-1$
+		File targetFile = new File(path).getAbsoluteFile();
+		if (!targetFile.exists()) {
+			return null;
+		}
+		PdfAnnotation annotation = new PdfAnnotation();
+		annotation.fileURI = targetFile.toURI().normalize();
+		// Hyperlinks still open workspace files in the text editor
+		annotation.file = findWorkspaceFile(annotation.fileURI, fileCache);
+		annotation.lineNumber = Integer.parseInt(sections[1]) - 1;
+		annotation.columnNumber = Integer.parseInt(sections[2]); // This value is independent of tab width
+		return annotation;
+	}
+
+	/**
+	 * Returns the existing workspace file at the given location, reusing the
+	 * results of previous lookups in the given cache.
+	 */
+	static IFile findWorkspaceFile(URI location, Map<URI, IFile> fileCache) {
+		if (fileCache.containsKey(location)) {
+			return fileCache.get(location);
+		}
+		IFile result = null;
+		if (Platform.isRunning()) { // Batch tools may run without a workspace
+			for (IFile file : ResourcesPlugin.getWorkspace().getRoot().findFilesForLocationURI(location)) {
+				if (file.exists()) {
+					result = file;
+				}
+			}
+		}
+		fileCache.put(location, result);
+		return result;
+	}
+
+}
@@ -0,0 +1,182 @@
+package org.eclipse.ui.views.pdf.annotations;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.ui.views.pdf.Activator;
+import org.eclipse.ui.views.pdf.PdfAnnotation;
+
+/**
+ * A persistent index of the point-and-click annotations of a PDF file, stored
+ * in the plug-in's state location. The index is valid only for the version of
+ * the PDF file which existed when the index instance was created, determined
+ * by its size and modification time.
+ */
+public class PdfAnnotationIndex {
+
+	private static final int VERSION = 1;
+
+	private static final String DIRECTORY = "annotations"; //$NON-NLS-1$
+
+	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	private final String pdfPath;
+
+	private final long length;
+
+	private final long lastModified;
+
+	public PdfAnnotationIndex(File pdfFile) {
+		pdfPath = pdfFile.getAbsolutePath();
+		length = pdfFile.length();
+		lastModified = pdfFile.lastModified();
+	}
+
+	private File getIndexFile() {
+		File directory = Activator.getInstance().getStateLocation().append(DIRECTORY).toFile();
+		return new File(directory, UUID.nameUUIDFromBytes(pdfPath.getBytes(UTF8)) + ".idx"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Checks whether the stored index belongs to the current version of the PDF
+	 * file.
+	 */
+	public boolean isUpToDate() {
+		File indexFile = getIndexFile();
+		if (!indexFile.isFile()) {
+			return false;
+		}
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try {
+				return readHeader(input);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the stored annotations mapped by page number, or
+	 * <code>null</code> if there is no up-to-date index.
+	 */
+	public Map<Integer, List<PdfAnnotation>> load() {
+		File indexFile = getIndexFile();
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try {
+				if (!readHeader(input)) {
+					return null;
+				}
+				Map<URI, IFile> fileCache = new HashMap<URI, IFile>();
+				Map<Integer, List<PdfAnnotation>> result = new HashMap<Integer, List<PdfAnnotation>>();
+				int pageCount = input.readInt();
+				for (int i = 0; i < pageCount; i++) {
+					int page = input.readInt();
+					int annotationCount = input.readInt();
+					List<PdfAnnotation> annotations = new ArrayList<PdfAnnotation>(annotationCount);
+					for (int j = 0; j < annotationCount; j++) {
+						PdfAnnotation annotation = new PdfAnnotation();
+						annotation.page = page;
+						annotation.fileURI = new URI(input.readUTF());
+						annotation.file = PdfAnnotationExtractor.findWorkspaceFile(annotation.fileURI, fileCache);
+						annotation.lineNumber = input.readInt();
+						annotation.columnNumber = input.readInt();
+						annotation.left = input.readFloat();
+						annotation.top = input.readFloat();
+						annotation.right = input.readFloat();
+						annotation.bottom = input.readFloat();
+						annotations.add(annotation);
+					}
+					result.put(page, annotations);
+				}
+				return result;
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			Activator.logError("Can't read annotation index of " + pdfPath, e);
+		} catch (URISyntaxException e) {
+			Activator.logError("Invalid annotation index of " + pdfPath, e);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the given annotations mapped by page number. The map must contain
+	 * every page of the PDF file.
+	 */
+	public void store(Map<Integer, List<PdfAnnotation>> annotations) {
+		File indexFile = getIndexFile();
+		try {
+			indexFile.getParentFile().mkdirs();
+			File tempFile = File.createTempFile("index", null, indexFile.getParentFile()); //$NON-NLS-1$
+			try {
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+				try {
+					output.writeInt(VERSION);
+					output.writeUTF(pdfPath);
+					output.writeLong(length);
+					output.writeLong(lastModified);
+					output.writeInt(annotations.size());
+					for (Entry<Integer, List<PdfAnnotation>> entry : annotations.entrySet()) {
+						output.writeInt(entry.getKey());
+						output.writeInt(entry.getValue().size());
+						for (PdfAnnotation annotation : entry.getValue()) {
+							output.writeUTF(annotation.fileURI.toString());
+							output.writeInt(annotation.lineNumber);
+							output.writeInt(annotation.columnNumber);
+							output.writeFloat(annotation.left);
+							output.writeFloat(annotation.top);
+							output.writeFloat(annotation.right);
+							output.writeFloat(annotation.bottom);
+						}
+					}
+				} finally {
+					output.close();
+				}
+				// Readers never see a partially written index
+				Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				tempFile.delete();
+			}
+		} catch (IOException e) {
+			Activator.logError("Can't write annotation index of " + pdfPath, e);
+		}
+	}
+
+	/**
+	 * Removes the stored index, if any.
+	 */
+	public void delete() {
+		getIndexFile().delete();
+	}
+
+	private boolean readHeader(DataInputStream input) throws IOException {
+		return input.readInt() == VERSION && input.readUTF().equals(pdfPath) && input.readLong() == length && input.readLong() == lastModified;
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.eclipse.ui.views.pdf.annotations;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.views.pdf.Activator;
+import org.eclipse.ui.views.pdf.PdfAnnotation;
+import org.eclipse.ui.views.pdf.PdfViewType;
+import org.eclipse.util.ResourceUtils;
+import org.jpedal.exception.PdfException;
+
+/**
+ * Builds the annotation indexes of PDF files in the background, so that the
+ * PDF view doesn't have to parse the annotations when the files are opened.
+ * Files with an up-to-date index are skipped, the others are processed in
+ * parallel by a bounded number of threads.
+ */
+public class PdfAnnotationIndexJob extends Job {
+
+	public static final Object FAMILY = PdfAnnotationIndexJob.class;
+
+	private static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	private final List<IFile> files;
+
+	public PdfAnnotationIndexJob(Collection<IFile> files) {
+		super("Indexing point-and-click annotations");
+		this.files = new ArrayList<IFile>(files);
+		setPriority(DECORATE);
+		setSystem(false);
+	}
+
+	/**
+	 * Returns a job that indexes all PDF files in the given container.
+	 */
+	public static PdfAnnotationIndexJob forContainer(IContainer container) {
+		List<IFile> pdfFiles = new ArrayList<IFile>();
+		for (IFile file : ResourceUtils.getAllFiles(container)) {
+			if (PdfViewType.EXTENSION.equals(file.getFileExtension())) {
+				pdfFiles.add(file);
+			}
+		}
+		return new PdfAnnotationIndexJob(pdfFiles);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == FAMILY;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, getName(), files.size());
+		// Progress monitors aren't thread-safe, the workers only check for cancellation
+		final IProgressMonitor cancellationMonitor = new NullProgressMonitor() {
+
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, Math.max(1, files.size())));
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (IFile file : files) {
+				IPath location = file.getLocation();
+				if (location != null) {
+					final File pdfFile = location.toFile();
+					results.add(executor.submit(new Runnable() {
+
+						@Override
+						public void run() {
+							index(pdfFile, cancellationMonitor);
+						}
+
+					}));
+				}
+			}
+			for (Future<?> result : results) {
+				if (progress.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					Activator.logError("Can't index point-and-click annotations", e.getCause());
+				}
+				progress.worked(1);
+			}
+		} catch (InterruptedException e) {
+			return Status.CANCEL_STATUS;
+		} finally {
+			executor.shutdownNow();
+		}
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	private static void index(File pdfFile, IProgressMonitor monitor) {
+		if (monitor.isCanceled() || !pdfFile.isFile()) {
+			return;
+		}
+		PdfAnnotationIndex index = new PdfAnnotationIndex(pdfFile);
+		if (index.isUpToDate()) {
+			return;
+		}
+		try {
+			Map<Integer, List<PdfAnnotation>> annotations = PdfAnnotationExtractor.extract(pdfFile, monitor);
+			if (!monitor.isCanceled()) {
+				index.store(annotations);
+			}
+		} catch (PdfException e) {
+			Activator.logError("Can't index point-and-click annotations of " + pdfFile, e);
+		}
+	}
+
+}
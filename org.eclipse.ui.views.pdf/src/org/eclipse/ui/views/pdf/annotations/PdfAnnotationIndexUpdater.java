@@ -0,0 +1,94 @@
+package org.eclipse.ui.views.pdf.annotations;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.views.pdf.Activator;
+import org.eclipse.ui.views.pdf.PdfViewType;
+
+/**
+ * Keeps the annotation indexes up to date when PDF files are written to the
+ * workspace. Changes are collected until the files have been quiet for a
+ * while, then a single {@link PdfAnnotationIndexJob} indexes all of them.
+ */
+public class PdfAnnotationIndexUpdater implements IResourceChangeListener {
+
+	private static final long QUIET_PERIOD = 1000;
+
+	private final Set<IFile> changedFiles = new LinkedHashSet<IFile>();
+
+	private final IResourceDeltaVisitor visitor = new IResourceDeltaVisitor() {
+
+		@Override
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			IResource resource = delta.getResource();
+			if ((resource instanceof IFile) && PdfViewType.EXTENSION.equals(resource.getFileExtension())) {
+				IFile file = (IFile)resource;
+				if (delta.getKind() == IResourceDelta.REMOVED) {
+					IPath location = file.getLocation();
+					if (location != null) {
+						new PdfAnnotationIndex(location.toFile()).delete();
+					}
+				} else if ((delta.getKind() == IResourceDelta.ADDED) || ((delta.getFlags() & IResourceDelta.CONTENT) != 0)) {
+					synchronized (changedFiles) {
+						changedFiles.add(file);
+					}
+				}
+			}
+			return true;
+		}
+
+	};
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		try {
+			event.getDelta().accept(visitor);
+		} catch (CoreException e) {
+			Activator.logError("Couldn't update the point-and-click annotation indexes", e);
+		}
+		synchronized (changedFiles) {
+			if (!changedFiles.isEmpty()) {
+				// Scheduling a sleeping job again doesn't postpone it
+				scheduleJob.cancel();
+				scheduleJob.schedule(QUIET_PERIOD);
+			}
+		}
+	}
+
+	private final Job scheduleJob = new Job("Scheduling point-and-click annotation indexing") {
+
+		{
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<IFile> files;
+			synchronized (changedFiles) {
+				files = new ArrayList<IFile>(changedFiles);
+				changedFiles.clear();
+			}
+			if (!files.isEmpty()) {
+				new PdfAnnotationIndexJob(files).schedule();
+			}
+			return Status.OK_STATUS;
+		}
+
+	};
+
+}
@@ -0,0 +1,97 @@
+package org.eclipse.ui.views.pdf.annotations;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.ui.views.pdf.PdfAnnotation;
+
+/**
+ * Finds the point-and-click annotations of a PDF file by the source location
+ * they link to. The annotations of each source file are sorted by line and
+ * column, so that lookups, e.g. while following the playback of the score,
+ * are binary searches which don't allocate memory.
+ */
+public class PdfAnnotationLocations {
+
+	private static class SourceFileAnnotations {
+
+		private final long[] locations;
+
+		private final PdfAnnotation[] annotations;
+
+		private SourceFileAnnotations(List<PdfAnnotation> annotations) {
+			Collections.sort(annotations, new Comparator<PdfAnnotation>() {
+
+				@Override
+				public int compare(PdfAnnotation annotation1, PdfAnnotation annotation2) {
+					return Long.compare(getLocation(annotation1.lineNumber, annotation1.columnNumber), getLocation(annotation2.lineNumber, annotation2.columnNumber));
+				}
+
+			});
+			this.annotations = annotations.toArray(new PdfAnnotation[annotations.size()]);
+			locations = new long[this.annotations.length];
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = getLocation(this.annotations[i].lineNumber, this.annotations[i].columnNumber);
+			}
+		}
+
+		private PdfAnnotation find(int lineNumber, int columnNumber) {
+			int index = Arrays.binarySearch(locations, getLocation(lineNumber, columnNumber));
+			if (index < 0) {
+				// Fall back to the preceding annotation on the same line
+				index = -index - 2;
+				if (index < 0 || annotations[index].lineNumber != lineNumber) {
+					return null;
+				}
+			}
+			return annotations[index];
+		}
+
+	}
+
+	private final Map<URI, SourceFileAnnotations> sourceFiles = new HashMap<URI, SourceFileAnnotations>();
+
+	/**
+	 * Creates the lookup tables for the given annotations mapped by page
+	 * number.
+	 */
+	public PdfAnnotationLocations(Map<Integer, List<PdfAnnotation>> annotations) {
+		Map<URI, List<PdfAnnotation>> annotationsBySourceFile = new HashMap<URI, List<PdfAnnotation>>();
+		for (Collection<PdfAnnotation> annotationsOnPage : annotations.values()) {
+			for (PdfAnnotation annotation : annotationsOnPage) {
+				List<PdfAnnotation> sourceFileAnnotations = annotationsBySourceFile.get(annotation.fileURI);
+				if (sourceFileAnnotations == null) {
+					sourceFileAnnotations = new ArrayList<PdfAnnotation>();
+					annotationsBySourceFile.put(annotation.fileURI, sourceFileAnnotations);
+				}
+				sourceFileAnnotations.add(annotation);
+			}
+		}
+		for (Entry<URI, List<PdfAnnotation>> entry : annotationsBySourceFile.entrySet()) {
+			sourceFiles.put(entry.getKey(), new SourceFileAnnotations(entry.getValue()));
+		}
+	}
+
+	private static long getLocation(int lineNumber, int columnNumber) {
+		return ((long)lineNumber << 32) | (columnNumber & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the annotation linking to the given location, or to the closest
+	 * location before it on the same line. Returns <code>null</code> if there
+	 * is none.
+	 */
+	public PdfAnnotation find(URI file, int lineNumber, int columnNumber) {
+		SourceFileAnnotations sourceFileAnnotations = sourceFiles.get(file);
+		return sourceFileAnnotations == null ? null : sourceFileAnnotations.find(lineNumber, columnNumber);
+	}
+
+}
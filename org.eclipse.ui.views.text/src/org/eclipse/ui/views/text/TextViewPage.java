@@ -0,0 +1,326 @@
+package org.eclipse.ui.views.text;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+
+import javax.util.file.MappedTextFile;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.views.file.FileViewScheduler;
+import org.eclipse.ui.views.file.FileViewScheduler.Generation;
+import org.eclipse.ui.views.file.FileViewScheduler.Lane;
+import org.eclipse.ui.views.file.FileViewScheduler.Task;
+
+/**
+ * Shows a text file, e.g. a build log, in a virtual table, so that only the
+ * visible lines are read. The lines are indexed in the background, window by
+ * window, and shown as soon as they are indexed, so that the page opens
+ * immediately regardless of the file size. While the page is open, the file
+ * is checked for appended lines periodically, and the page follows the end of
+ * the file if it was scrolled there.
+ */
+public class TextViewPage extends Composite {
+
+	/**
+	 * The interval in milliseconds in which the file is checked for appended
+	 * lines, set by the <code>textViewPollInterval</code> system property.
+	 */
+	private static final int POLL_MILLISECONDS = Math.max(10, Integer.getInteger("textViewPollInterval", 1000)); //$NON-NLS-1$
+
+	/**
+	 * The maximum number of windows indexed before the lines are shown.
+	 */
+	private static final int WINDOWS_PER_UPDATE = 4;
+
+	/**
+	 * The number of lines read at a time for the table.
+	 */
+	private static final int BLOCK_SIZE = 256;
+
+	private static final int MARGIN = 16;
+
+	/**
+	 * Indexes the files of all text view pages.
+	 */
+	private static final FileViewScheduler SCHEDULER = new FileViewScheduler("Text view");
+
+	private final Table table;
+
+	private final TableColumn lineNumberColumn;
+
+	private final TableColumn textColumn;
+
+	public TextViewPage(Composite parent, IFile file) {
+		super(parent, SWT.NONE);
+		setLayout(new FillLayout());
+		table = new Table(this, SWT.VIRTUAL | SWT.MULTI | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+		table.setFont(JFaceResources.getTextFont());
+		lineNumberColumn = new TableColumn(table, SWT.RIGHT);
+		textColumn = new TableColumn(table, SWT.LEFT);
+		table.addListener(SWT.SetData, new Listener() {
+
+			@Override
+			public void handleEvent(Event event) {
+				TableItem item = (TableItem)event.item;
+				int index = table.indexOf(item);
+				item.setText(0, String.valueOf(index + 1));
+				item.setText(1, getLine(index));
+			}
+
+		});
+		setFile(file);
+		getDisplay().timerExec(POLL_MILLISECONDS, poller);
+	}
+
+	// File handling
+
+	/**
+	 * The open text file.
+	 */
+	private IFile file;
+
+	public IFile getFile() {
+		return file;
+	}
+
+	private MappedTextFile textFile;
+
+	/**
+	 * Advanced when another file is opened, so that indexing the previous one
+	 * is abandoned.
+	 */
+	private final Generation generation = new Generation();
+
+	/**
+	 * Opens the given file and indexes it in the background.
+	 */
+	public void setFile(IFile file) {
+		this.file = file;
+		textFile = new MappedTextFile(file.getRawLocation().toFile(), getCharset(file));
+		generation.advance();
+		updating = false;
+		shownLineCount = 0;
+		shownResetCount = 0;
+		block = null;
+		table.setItemCount(0);
+		update();
+	}
+
+	private static Charset getCharset(IFile file) {
+		try {
+			return Charset.forName(file.getCharset());
+		} catch (CoreException | IllegalCharsetNameException | UnsupportedCharsetException e) {
+			return Charset.defaultCharset();
+		}
+	}
+
+	/**
+	 * Indexes the lines appended since the last update.
+	 */
+	public void reload() {
+		update();
+	}
+
+	public void closeFile() {
+		generation.advance();
+		dispose();
+	}
+
+	// Indexing
+
+	/**
+	 * Whether an update is running. Only one update runs at a time, further
+	 * requests are merged into a single update afterwards.
+	 */
+	private boolean updating;
+
+	private boolean updateRequested;
+
+	private void update() {
+		if (updating) {
+			updateRequested = true;
+			return;
+		}
+		updating = true;
+		updateRequested = false;
+		final MappedTextFile updatedFile = textFile;
+		SCHEDULER.schedule(Lane.FOREGROUND, generation, new Task<Boolean>() {
+
+			@Override
+			public Boolean run(IProgressMonitor monitor) throws IOException {
+				boolean more;
+				int windows = 0;
+				do {
+					more = updatedFile.update();
+				} while (more && ++windows < WINDOWS_PER_UPDATE && !monitor.isCanceled());
+				return more;
+			}
+
+			@Override
+			public void apply(Boolean more) {
+				updating = false;
+				if (isDisposed()) {
+					return;
+				}
+				indexed();
+				if (more || updateRequested) {
+					update();
+				}
+			}
+
+			@Override
+			public void failed(Exception exception) {
+				updating = false;
+				if (!isDisposed()) {
+					Activator.logError("Can't read text file " + updatedFile.getFile().getName(), exception);
+				}
+			}
+
+		});
+	}
+
+	private int shownLineCount;
+
+	private int shownResetCount;
+
+	/**
+	 * Shows the lines indexed so far.
+	 */
+	private void indexed() {
+		int lineCount = textFile.getLineCount();
+		int resetCount = textFile.getResetCount();
+		boolean atEnd = isAtEnd();
+		block = null;
+		if (resetCount != shownResetCount) {
+			table.clearAll();
+			shownResetCount = resetCount;
+		} else if (shownLineCount > 0) {
+			table.clear(shownLineCount - 1); // The last line may have been incomplete
+		}
+		if (lineCount != shownLineCount) {
+			table.setItemCount(lineCount);
+			shownLineCount = lineCount;
+			updateLineNumberColumn();
+			if (atEnd) {
+				table.showItem(table.getItem(lineCount - 1));
+			}
+		}
+	}
+
+	private boolean isAtEnd() {
+		if (shownLineCount == 0) {
+			return false;
+		}
+		int visibleLines = table.getClientArea().height / Math.max(1, table.getItemHeight());
+		return table.getTopIndex() + visibleLines >= shownLineCount;
+	}
+
+	/**
+	 * Checks periodically whether lines were appended to the file, also while
+	 * it is still being written.
+	 */
+	private final Runnable poller = new Runnable() {
+
+		private long checkedLength;
+
+		@Override
+		public void run() {
+			if (isDisposed()) {
+				return;
+			}
+			long length = textFile.getFile().length();
+			if (length != checkedLength && length != textFile.getIndexedLength()) {
+				update();
+			}
+			checkedLength = length;
+			getDisplay().timerExec(POLL_MILLISECONDS, this);
+		}
+
+	};
+
+	// Lines
+
+	/**
+	 * The lines read most recently.
+	 */
+	private String[] block;
+
+	private int blockStart;
+
+	private String getLine(int index) {
+		if (block == null || index < blockStart || index >= blockStart + block.length) {
+			blockStart = index / BLOCK_SIZE * BLOCK_SIZE;
+			try {
+				block = textFile.getLines(blockStart, BLOCK_SIZE);
+			} catch (IOException e) {
+				Activator.logError("Can't read text file " + textFile.getFile().getName(), e);
+				block = new String[BLOCK_SIZE];
+				Arrays.fill(block, ""); //$NON-NLS-1$
+			}
+			updateTextColumn(block);
+		}
+		return index - blockStart < block.length ? block[index - blockStart] : ""; //$NON-NLS-1$
+	}
+
+	private void updateLineNumberColumn() {
+		GC gc = new GC(table);
+		try {
+			int width = gc.textExtent(String.valueOf(shownLineCount)).x + MARGIN;
+			if (width > lineNumberColumn.getWidth()) {
+				lineNumberColumn.setWidth(width);
+			}
+		} finally {
+			gc.dispose();
+		}
+	}
+
+	/**
+	 * Widens the text column to the longest of the given lines. The column is
+	 * resized after the table has been painted, since the lines are read while
+	 * painting.
+	 */
+	private void updateTextColumn(String[] lines) {
+		GC gc = new GC(table);
+		final int width;
+		try {
+			int maxWidth = textColumn.getWidth();
+			int averageCharWidth = gc.getFontMetrics().getAverageCharWidth();
+			for (String line : lines) {
+				if (line.length() * averageCharWidth > maxWidth - MARGIN) {
+					maxWidth = Math.max(maxWidth, gc.textExtent(line).x + MARGIN);
+				}
+			}
+			width = maxWidth;
+		} finally {
+			gc.dispose();
+		}
+		if (width > textColumn.getWidth()) {
+			getDisplay().asyncExec(new Runnable() {
+
+				@Override
+				public void run() {
+					if (!textColumn.isDisposed() && width > textColumn.getWidth()) {
+						textColumn.setWidth(width);
+					}
+				}
+
+			});
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package org.eclipse.ui.views.text;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.ui.part.PageBook;
+import org.eclipse.ui.views.file.IFileViewType;
+
+/**
+ * Shows plain text files of any size, e.g. build logs, which are updated
+ * while they are written.
+ */
+public class TextViewType implements IFileViewType<TextViewPage> {
+
+	@Override
+	public TextViewPage createPage(PageBook pageBook, IFile file) throws Exception {
+		return new TextViewPage(pageBook, file);
+	}
+
+	@Override
+	public IContributionItem[] getToolbarContributions() {
+		return new IContributionItem[0];
+	}
+
+	@Override
+	public void pageShown(TextViewPage page) {
+	}
+
+	@Override
+	public void reload(TextViewPage page) throws Exception {
+		page.reload();
+	}
+
+	@Override
+	public void pageClosed(TextViewPage page) {
+		page.closeFile();
+	}
+
+	@Override
+	public IFile getFile(IFile sourceFile) {
+		return sourceFile;
+	}
+
+}